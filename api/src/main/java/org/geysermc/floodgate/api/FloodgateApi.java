@@ -28,11 +28,14 @@ package org.geysermc.floodgate.api;
 import java.util.Collection;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 import org.geysermc.cumulus.form.Form;
 import org.geysermc.cumulus.form.util.FormBuilder;
 import org.geysermc.floodgate.api.event.FloodgateEventBus;
 import org.geysermc.floodgate.api.link.PlayerLink;
 import org.geysermc.floodgate.api.player.FloodgatePlayer;
+import org.geysermc.floodgate.api.player.PlayerSnapshot;
+import org.geysermc.floodgate.api.player.PlayerStatistics;
 import org.geysermc.floodgate.api.unsafe.Unsafe;
 
 public interface FloodgateApi {
@@ -50,10 +53,31 @@ public interface FloodgateApi {
     String getPlayerPrefix();
 
     /**
-     * Returns all the online Floodgate players.
+     * Returns all the online Floodgate players. The returned collection can't be modified.
      */
     Collection<FloodgatePlayer> getPlayers();
 
+    /**
+     * Calls the given action for every online Floodgate player, without copying the players first.
+     * Players that join or leave while this method is running may or may not be included.
+     *
+     * @param action the action to call for every online player
+     */
+    void forEachPlayer(Consumer<? super FloodgatePlayer> action);
+
+    /**
+     * Returns an immutable snapshot of the online Floodgate players. The same snapshot is returned
+     * until a player joins or leaves, so you can compare its {@link PlayerSnapshot#version()
+     * version} to the last one you've seen to know whether anything changed.
+     */
+    PlayerSnapshot getPlayerSnapshot();
+
+    /**
+     * Returns the statistics of the online Floodgate players, like the amount of players per
+     * device os. The returned instance stays up to date, so it only has to be requested once.
+     */
+    PlayerStatistics getPlayerStatistics();
+
     /**
      * Returns the number of Floodgate players who are currently online.
      */
@@ -75,6 +99,32 @@ public interface FloodgateApi {
      */
     FloodgatePlayer getPlayer(UUID uuid);
 
+    /**
+     * Get info about the online Bedrock player with the given Java username. This is the username
+     * the player has on the server, so it includes the {@link #getPlayerPrefix() prefix} for
+     * players who aren't linked. The username is case-insensitive.
+     * <p>
+     * The lookups by uuid, username and gamertag aren't updated together. While a player is
+     * joining or leaving, one of them can already (or still) find the player while another one
+     * doesn't. Use {@link #getPlayerSnapshot()} when you need a consistent view of all the players.
+     *
+     * @param username the Java username of the <b>online</b> Bedrock player
+     * @return FloodgatePlayer if there is an online Bedrock player with the given username,
+     * otherwise null
+     */
+    FloodgatePlayer getPlayerByUsername(String username);
+
+    /**
+     * Get info about the online Bedrock player with the given gamertag. The gamertag is
+     * case-insensitive. See {@link #getPlayerByUsername(String)} for how this lookup relates to
+     * the other lookups.
+     *
+     * @param gamertag the gamertag of the <b>online</b> Bedrock player
+     * @return FloodgatePlayer if there is an online Bedrock player with the given gamertag,
+     * otherwise null
+     */
+    FloodgatePlayer getPlayerByGamertag(String gamertag);
+
     /**
      * Create a valid Java player uuid of a xuid
      *
@@ -97,6 +147,23 @@ public interface FloodgateApi {
 
     boolean sendForm(UUID uuid, FormBuilder<?, ?, ?> formBuilder);
 
+    /**
+     * Sends the same form to all the given players. This is faster than sending the form to every
+     * player individually, because the form only has to be serialized once.
+     * Players that aren't online Bedrock players are skipped.
+     * <p>
+     * Note that every player gets the same form instance, so the result handler of the form is
+     * shared as well: it's called once for every player that responds (or closes the form), it
+     * can be called from multiple threads at the same time and it can't tell which player the
+     * response came from. Send a form to every player individually using
+     * {@link #sendForm(UUID, Form)} when the handler has to know who responded.
+     *
+     * @param uuids the uuids of the <b>online</b> Bedrock players to send the form to
+     * @param form  the form to send
+     * @return true if the form has been sent to all the Bedrock players
+     */
+    boolean sendForm(Collection<UUID> uuids, Form form);
+
     boolean closeForm(UUID uuid);
 
     /**
@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2019-2022 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/Floodgate
+ */
+
+package org.geysermc.floodgate.api.handshake;
+
+import java.util.concurrent.CompletionStage;
+
+/**
+ * A handshake handler that doesn't block the thread handling the handshake while it's waiting on
+ * for example a database. The handshake continues once the returned stage completes. Async
+ * handshake handlers with the same priority are called at the same time, so make sure that they
+ * don't depend on each other's changes to the {@link HandshakeData}.
+ *
+ * @deprecated Handshake handlers will be removed with the launch of Floodgate 3.0. Please look at
+ * <a href="https://github.com/GeyserMC/Floodgate/issues/536">#536</a> for additional context.
+ */
+@Deprecated
+@FunctionalInterface
+public interface AsyncHandshakeHandler extends HandshakeHandler {
+    /**
+     * Method that will be called during the time that Floodgate handles the handshake.
+     *
+     * @param data the data usable during the handshake
+     * @return a stage that completes when this handshake handler is done
+     */
+    CompletionStage<Void> handleAsync(HandshakeData data);
+
+    @Override
+    default void handle(HandshakeData data) {
+        handleAsync(data).toCompletableFuture().join();
+    }
+}
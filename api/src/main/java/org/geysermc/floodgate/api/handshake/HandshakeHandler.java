@@ -38,4 +38,13 @@ public interface HandshakeHandler {
      * @param data the data usable during the handshake
      */
     void handle(HandshakeData data);
+
+    /**
+     * Returns the priority of this handshake handler. Handshake handlers with a lower priority are
+     * called before handshake handlers with a higher priority, and handshake handlers with the same
+     * priority are called in the order they have been registered.
+     */
+    default int getPriority() {
+        return 0;
+    }
 }
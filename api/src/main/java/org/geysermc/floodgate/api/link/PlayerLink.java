@@ -25,6 +25,9 @@
 
 package org.geysermc.floodgate.api.link;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import org.checkerframework.checker.nullness.qual.NonNull;
@@ -53,6 +56,37 @@ public interface PlayerLink {
     @NonNull
     CompletableFuture<LinkedPlayer> getLinkedPlayer(@NonNull UUID bedrockId);
 
+    /**
+     * Get the linked players of multiple Bedrock players at once. Implementations should look them
+     * up in as few queries as possible, by default every player is looked up separately using
+     * {@link #getLinkedPlayer(UUID)}, all at the same time.
+     *
+     * @param bedrockIds the uuids of the Bedrock players
+     * @return a completable future with a map of the Bedrock uuid and the {@link LinkedPlayer} of
+     * every given Bedrock player that is linked. Bedrock players that aren't linked are not part of
+     * the map
+     */
+    @NonNull
+    default CompletableFuture<Map<UUID, LinkedPlayer>> getLinkedPlayers(
+            @NonNull Collection<UUID> bedrockIds) {
+        Map<UUID, CompletableFuture<LinkedPlayer>> lookups = new HashMap<>();
+        for (UUID bedrockId : bedrockIds) {
+            lookups.computeIfAbsent(bedrockId, this::getLinkedPlayer);
+        }
+
+        return CompletableFuture.allOf(lookups.values().toArray(new CompletableFuture[0]))
+                .thenApply(ignored -> {
+                    Map<UUID, LinkedPlayer> players = new HashMap<>();
+                    lookups.forEach((bedrockId, lookup) -> {
+                        LinkedPlayer player = lookup.join();
+                        if (player != null) {
+                            players.put(bedrockId, player);
+                        }
+                    });
+                    return players;
+                });
+    }
+
     /**
      * Tells if the given player is a linked player
      *
@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2019-2022 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/Floodgate
+ */
+
+package org.geysermc.floodgate.api.player;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * An immutable view of the online Floodgate players at a given moment. The same snapshot is
+ * shared by everyone who asks for it until a player joins or leaves, so it's cheap to request it
+ * often (e.g. every tick).
+ */
+public final class PlayerSnapshot implements Iterable<FloodgatePlayer> {
+    private final long version;
+    private final FloodgatePlayer[] players;
+    private final List<FloodgatePlayer> playerList;
+    private final Set<FloodgatePlayer> playerSet;
+
+    /**
+     * Creates a snapshot of the given players. The array is copied, so changing it afterwards
+     * doesn't change the snapshot.
+     *
+     * @param version the version of the snapshot, see {@link #version()}
+     * @param players the players to include in the snapshot
+     */
+    public PlayerSnapshot(long version, FloodgatePlayer[] players) {
+        this.version = version;
+        this.players = players.clone();
+        this.playerList = Collections.unmodifiableList(Arrays.asList(this.players));
+        this.playerSet = Collections.unmodifiableSet(new LinkedHashSet<>(playerList));
+    }
+
+    /**
+     * Returns the version of this snapshot. The version changes every time a player joins or
+     * leaves, so two snapshots with the same version contain the same players.
+     */
+    public long version() {
+        return version;
+    }
+
+    /**
+     * Returns the amount of players in this snapshot.
+     */
+    public int size() {
+        return players.length;
+    }
+
+    /**
+     * Returns the player at the given index.
+     *
+     * @param index the index of the player, between 0 (inclusive) and {@link #size()} (exclusive)
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    public FloodgatePlayer get(int index) {
+        return players[index];
+    }
+
+    /**
+     * Returns the players of this snapshot as an unmodifiable list.
+     */
+    public List<FloodgatePlayer> asList() {
+        return playerList;
+    }
+
+    /**
+     * Returns the players of this snapshot as an unmodifiable set, in the same order as
+     * {@link #asList()}.
+     */
+    public Set<FloodgatePlayer> asSet() {
+        return playerSet;
+    }
+
+    @Override
+    public Iterator<FloodgatePlayer> iterator() {
+        return playerList.iterator();
+    }
+
+    @Override
+    public void forEach(Consumer<? super FloodgatePlayer> action) {
+        for (FloodgatePlayer player : players) {
+            action.accept(player);
+        }
+    }
+}
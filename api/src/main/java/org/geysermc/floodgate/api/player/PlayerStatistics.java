@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2019-2022 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/Floodgate
+ */
+
+package org.geysermc.floodgate.api.player;
+
+import java.util.Map;
+import org.geysermc.floodgate.util.DeviceOs;
+import org.geysermc.floodgate.util.InputMode;
+import org.geysermc.floodgate.util.UiProfile;
+
+/**
+ * Counts of the online Floodgate players, grouped by a few properties of their Bedrock client.
+ * The counts are kept up to date when players join and leave, so reading them doesn't have to go
+ * through the online players.
+ */
+public interface PlayerStatistics {
+    /**
+     * Returns the amount of online players that play on the given device os.
+     */
+    long getDeviceOsCount(DeviceOs deviceOs);
+
+    /**
+     * Returns the amount of online players that use the given input mode.
+     */
+    long getInputModeCount(InputMode inputMode);
+
+    /**
+     * Returns the amount of online players that use the given ui profile.
+     */
+    long getUiProfileCount(UiProfile uiProfile);
+
+    /**
+     * Returns the amount of online players that use the given Bedrock client version.
+     */
+    long getVersionCount(String version);
+
+    /**
+     * Returns the amount of online players that use the given language code.
+     */
+    long getLanguageCount(String languageCode);
+
+    /**
+     * Returns the amount of online players per device os. Device oses without online players are
+     * not included.
+     */
+    Map<DeviceOs, Long> getDeviceOsCounts();
+
+    /**
+     * Returns the amount of online players per input mode. Input modes without online players are
+     * not included.
+     */
+    Map<InputMode, Long> getInputModeCounts();
+
+    /**
+     * Returns the amount of online players per ui profile. Ui profiles without online players are
+     * not included.
+     */
+    Map<UiProfile, Long> getUiProfileCounts();
+
+    /**
+     * Returns the amount of online players per Bedrock client version. Versions without online
+     * players are not included.
+     */
+    Map<String, Long> getVersionCounts();
+
+    /**
+     * Returns the amount of online players per language code. Languages without online players
+     * are not included.
+     */
+    Map<String, Long> getLanguageCounts();
+}
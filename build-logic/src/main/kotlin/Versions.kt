@@ -40,4 +40,6 @@ object Versions {
     const val javaWebsocketVersion = "1.6.0"
 
     const val checkerQual = "3.19.0"
+
+    const val junitVersion = "5.9.2"
 }
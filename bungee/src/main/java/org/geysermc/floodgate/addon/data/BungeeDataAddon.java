@@ -76,6 +76,10 @@ public class BungeeDataAddon implements InjectorAddon {
 
         PacketBlocker blocker = new PacketBlocker();
         channel.pipeline().addBefore(packetDecoder, "floodgate_packet_blocker", blocker);
+        channel.pipeline().addBefore(
+                "floodgate_packet_blocker", "floodgate_data_detector",
+                new FloodgateDataDetector("floodgate_packet_blocker", "floodgate_data_handler")
+        );
 
         channel.pipeline().addBefore(
                 packetHandler, "floodgate_data_handler",
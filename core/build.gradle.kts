@@ -2,6 +2,7 @@ import com.github.jengelman.gradle.plugins.shadow.tasks.ShadowJar
 
 plugins {
     id("floodgate.generate-templates")
+    id("me.champeau.jmh") version "0.6.8"
 }
 
 dependencies {
@@ -17,6 +18,10 @@ dependencies {
     api("org.java-websocket", "Java-WebSocket", Versions.javaWebsocketVersion)
     api("org.incendo", "cloud-core", Versions.cloudCore)
     api("org.bstats", "bstats-base", Versions.bstatsVersion)
+
+    testImplementation("org.junit.jupiter", "junit-jupiter", Versions.junitVersion)
+    // the provided dependencies below are compileOnly, but the tests need them as well
+    testImplementation("io.netty", "netty-transport", Versions.nettyVersion)
 }
 
 // present on all platforms
@@ -37,4 +42,7 @@ tasks {
     named<ShadowJar>("shadowJar") {
         archiveClassifier.set("shaded")
     }
+    named<Test>("test") {
+        useJUnitPlatform()
+    }
 }
\ No newline at end of file
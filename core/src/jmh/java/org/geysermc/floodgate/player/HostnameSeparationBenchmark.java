@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2019-2022 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/Floodgate
+ */
+
+package org.geysermc.floodgate.player;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.geysermc.floodgate.crypto.FloodgateCipher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HostnameSeparationBenchmark {
+    private static final String HEADER = new String(FloodgateCipher.HEADER, StandardCharsets.UTF_8);
+    // only the header is validated while separating, the content doesn't have to be valid
+    private static final String FLOODGATE_DATA = HEADER + "AAAAAAAAAAAAAAAAAAAAAA==!" +
+            "dGhpcyBpcyBub3QgdmFsaWQgRmxvb2RnYXRlIGRhdGEsIGJ1dCBpdCBpcyBsb25nIGVub3VnaA==";
+    private static final String BUNGEE_DATA =
+            "127.0.0.1" + '\0' + "069a79f444e94726a5befca90e38aaf5" + '\0' +
+            "[{\"name\":\"textures\",\"value\":\"dGV4dHVyZXM=\",\"signature\":\"c2lnbmF0dXJl\"}]";
+
+    // separateHostname doesn't use any of the handshake handler's dependencies
+    private final FloodgateHandshakeHandler handshakeHandler =
+            new FloodgateHandshakeHandler(
+                    null, null, null, null, null, null, null, null, null, null, null);
+
+    private final String javaHostname = "play.example.com";
+    private final String bedrockHostname = "play.example.com\0" + FLOODGATE_DATA;
+    private final String bungeeJavaHostname = "play.example.com\0" + BUNGEE_DATA;
+    private final String bungeeBedrockHostname =
+            "play.example.com\0" + FLOODGATE_DATA + '\0' + BUNGEE_DATA;
+
+    @Benchmark
+    public HostnameSeparationResult javaPlayer() {
+        return handshakeHandler.separateHostname(javaHostname);
+    }
+
+    @Benchmark
+    public HostnameSeparationResult bedrockPlayer() {
+        return handshakeHandler.separateHostname(bedrockHostname);
+    }
+
+    @Benchmark
+    public HostnameSeparationResult bungeeForwardedJavaPlayer() {
+        return handshakeHandler.separateHostname(bungeeJavaHostname);
+    }
+
+    @Benchmark
+    public HostnameSeparationResult bungeeForwardedBedrockPlayer() {
+        return handshakeHandler.separateHostname(bungeeBedrockHostname);
+    }
+}
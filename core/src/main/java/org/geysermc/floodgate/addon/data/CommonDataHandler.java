@@ -30,6 +30,7 @@ import io.netty.channel.Channel;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
 import io.netty.util.AttributeKey;
+import io.netty.util.ReferenceCountUtil;
 import java.net.InetSocketAddress;
 import java.util.Queue;
 import lombok.RequiredArgsConstructor;
@@ -52,6 +53,10 @@ public abstract class CommonDataHandler extends ChannelInboundHandlerAdapter {
     protected Object handshakePacket;
     protected ChannelHandlerContext ctx;
 
+    private boolean readingPaused;
+    private int maxQueuedPackets = -1;
+    private int queuedPackets;
+
     protected abstract void setNewIp(Channel channel, InetSocketAddress newIp);
 
     protected abstract Object setHostname(Object handshakePacket, String hostname);
@@ -70,7 +75,7 @@ public abstract class CommonDataHandler extends ChannelInboundHandlerAdapter {
         this.handshakePacket = handshakePacket;
         HostnameSeparationResult separation = handshakeHandler.separateHostname(hostname);
 
-        if (separation.floodgateData() == null) {
+        if (separation == null) {
             // not a Floodgate player, make sure to resend the cancelled handshake packet
             disablePacketQueue(true);
             return;
@@ -85,50 +90,81 @@ public abstract class CommonDataHandler extends ChannelInboundHandlerAdapter {
             return;
         }
 
-        blocker.enable();
-
         Channel channel = ctx.channel();
 
+        FloodgateConfig.HandshakeConfig handshakeConfig = config.getHandshake();
+        if (handshakeConfig.isPauseReading()) {
+            // the few packets that are already read are queued, but stop reading new ones.
+            // This way the client has to wait instead of us having to store what it sends
+            readingPaused = true;
+            maxQueuedPackets = handshakeConfig.getMaxQueuedPackets();
+            channel.config().setAutoRead(false);
+            blocker.enable(maxQueuedPackets);
+        } else {
+            blocker.enable();
+        }
+
         handshakeHandler
                 .handle(channel, separation.floodgateData(), separation.hostnameRemainder())
-                .thenApply(result -> {
-                    HandshakeData handshakeData = result.getHandshakeData();
-
-                    // we'll change the IP address to the real IP of the client very early on
-                    // so that almost every plugin will use the real IP of the client
-                    InetSocketAddress newIp = result.getNewIp(channel);
-                    if (newIp != null) {
-                        setNewIp(channel, newIp);
-                    }
-
-                    this.handshakePacket = setHostname(handshakePacket, handshakeData.getHostname());
-
-                    if (handshakeData.shouldDisconnect()) {
-                        setKickMessage(handshakeData.getDisconnectReason());
-                        return shouldRemoveHandler(result);
-                    }
-
-                    switch (result.getResultType()) {
-                        case EXCEPTION:
-                            setKickMessage(Constants.INTERNAL_ERROR_MESSAGE);
-                            break;
-                        case DECRYPT_ERROR:
-                            setKickMessage(config.getDisconnect().getInvalidKey());
-                            break;
-                        case INVALID_DATA_LENGTH:
-                            setKickMessage(config.getDisconnect().getInvalidArgumentsLength());
-                            break;
-                        default:
-                            break;
-                    }
-                    return shouldRemoveHandler(result);
-                }).handle((shouldRemove, error) -> {
-                    if (error != null) {
-                        error.printStackTrace();
-                    }
-                    disablePacketQueue(shouldRemove);
-                    return shouldRemove;
-                });
+                .whenComplete((result, error) ->
+                        // finish the handshake in one go on the event loop, so that releasing the
+                        // queued packets and removing the handlers doesn't happen across threads
+                        channel.eventLoop().execute(() -> finishHandshake(channel, result, error))
+                );
+    }
+
+    private void finishHandshake(Channel channel, HandshakeResult result, Throwable error) {
+        boolean removeSelf;
+        if (error != null) {
+            error.printStackTrace();
+            setKickMessage(Constants.INTERNAL_ERROR_MESSAGE);
+            removeSelf = false;
+        } else {
+            try {
+                removeSelf = applyResult(channel, result);
+            } catch (Exception exception) {
+                exception.printStackTrace();
+                setKickMessage(Constants.INTERNAL_ERROR_MESSAGE);
+                removeSelf = false;
+            }
+        }
+        disablePacketQueue(removeSelf);
+    }
+
+    private boolean applyResult(Channel channel, HandshakeResult result) {
+        HandshakeData handshakeData = result.getHandshakeData();
+
+        // we'll change the IP address to the real IP of the client very early on
+        // so that almost every plugin will use the real IP of the client
+        InetSocketAddress newIp = result.getNewIp(channel);
+        if (newIp != null) {
+            setNewIp(channel, newIp);
+        }
+
+        this.handshakePacket = setHostname(handshakePacket, handshakeData.getHostname());
+
+        if (handshakeData.shouldDisconnect()) {
+            setKickMessage(handshakeData.getDisconnectReason());
+            return shouldRemoveHandler(result);
+        }
+
+        switch (result.getResultType()) {
+            case EXCEPTION:
+                setKickMessage(Constants.INTERNAL_ERROR_MESSAGE);
+                break;
+            case DECRYPT_ERROR:
+                setKickMessage(config.getDisconnect().getInvalidKey());
+                break;
+            case INVALID_DATA_LENGTH:
+                setKickMessage(config.getDisconnect().getInvalidArgumentsLength());
+                break;
+            case SERVER_BUSY:
+                setKickMessage(config.getDisconnect().getServerBusy());
+                break;
+            default:
+                break;
+        }
+        return shouldRemoveHandler(result);
     }
 
     protected void disablePacketQueue(boolean removeSelf) {
@@ -146,6 +182,11 @@ public abstract class CommonDataHandler extends ChannelInboundHandlerAdapter {
             removeSelf();
         }
         blocker.disable();
+
+        if (readingPaused) {
+            readingPaused = false;
+            ctx.channel().config().setAutoRead(true);
+        }
     }
 
     protected void removeSelf() {
@@ -170,6 +211,11 @@ public abstract class CommonDataHandler extends ChannelInboundHandlerAdapter {
     public void channelRead(ChannelHandlerContext ctx, Object packet) {
         // prevent other packets from being handled while we handle the handshake packet
         if (!packetQueue.isEmpty()) {
+            if (maxQueuedPackets != -1 && ++queuedPackets > maxQueuedPackets) {
+                ReferenceCountUtil.release(packet);
+                ctx.close();
+                return;
+            }
             packetQueue.add(packet);
             return;
         }
@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2019-2022 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/Floodgate
+ */
+
+package org.geysermc.floodgate.addon.data;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import org.geysermc.floodgate.crypto.FloodgateCipher;
+import org.geysermc.floodgate.util.Utils;
+
+/**
+ * Looks at the raw handshake frame before the platform decodes it. When the hostname doesn't
+ * contain the Floodgate identifier, the player is a Java player and the given Floodgate handlers
+ * are removed right away. This way Java players don't have to go through the data handler and
+ * packet blocker at all. When it does contain the identifier, or when the frame can't be read,
+ * the other handlers handle the connection like they normally would.
+ */
+public final class FloodgateDataDetector extends ChannelInboundHandlerAdapter {
+    private static final int HANDSHAKE_PACKET_ID = 0;
+    private static final int MAX_VAR_INT_SHIFT = 35;
+
+    private final String[] floodgateHandlers;
+
+    /**
+     * @param floodgateHandlers the names of the handlers to remove when the connection doesn't
+     *                          contain Floodgate data
+     */
+    public FloodgateDataDetector(String... floodgateHandlers) {
+        this.floodgateHandlers = floodgateHandlers;
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        if (msg instanceof ByteBuf && !mightContainFloodgateData((ByteBuf) msg)) {
+            for (String handler : floodgateHandlers) {
+                Utils.removeHandler(ctx.pipeline(), handler);
+            }
+        }
+        ctx.pipeline().remove(this);
+        super.channelRead(ctx, msg);
+    }
+
+    /**
+     * Returns false if the given handshake frame definitely doesn't contain Floodgate data. This
+     * method doesn't change the reader index of the buffer.
+     */
+    static boolean mightContainFloodgateData(ByteBuf frame) {
+        int index = frame.readerIndex();
+        int end = frame.writerIndex();
+
+        // packet id, the handshake packet id fits in a single byte
+        if (index >= end || frame.getByte(index++) != HANDSHAKE_PACKET_ID) {
+            return true;
+        }
+
+        // protocol version
+        byte current;
+        int shift = 0;
+        do {
+            if (index >= end || shift >= MAX_VAR_INT_SHIFT) {
+                return true;
+            }
+            current = frame.getByte(index++);
+            shift += 7;
+        } while ((current & 0x80) != 0);
+
+        // hostname length
+        int hostnameLength = 0;
+        shift = 0;
+        do {
+            if (index >= end || shift >= MAX_VAR_INT_SHIFT) {
+                return true;
+            }
+            current = frame.getByte(index++);
+            hostnameLength |= (current & 0x7F) << shift;
+            shift += 7;
+        } while ((current & 0x80) != 0);
+
+        int hostnameEnd = index + hostnameLength;
+        if (hostnameLength < 0 || hostnameEnd > end) {
+            return true;
+        }
+
+        // the identifier is ASCII, so we can look for it without decoding the hostname
+        byte[] identifier = FloodgateCipher.IDENTIFIER;
+        int lastStart = hostnameEnd - identifier.length;
+        search:
+        for (int start = index; start <= lastStart; start++) {
+            for (int i = 0; i < identifier.length; i++) {
+                if (frame.getByte(start + i) != identifier[i]) {
+                    continue search;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+}
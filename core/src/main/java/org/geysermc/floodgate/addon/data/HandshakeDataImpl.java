@@ -81,6 +81,36 @@ public class HandshakeDataImpl implements HandshakeData {
         this.javaUniqueId = javaUniqueId;
     }
 
+    private HandshakeDataImpl(HandshakeDataImpl data) {
+        this.channel = data.channel;
+        this.floodgatePlayer = data.floodgatePlayer;
+        this.bedrockData = data.bedrockData != null ? data.bedrockData.clone() : null;
+        this.javaUsername = data.javaUsername;
+        this.javaUniqueId = data.javaUniqueId;
+        this.linkedPlayer = data.linkedPlayer != null ? data.linkedPlayer.clone() : null;
+        this.hostname = data.hostname;
+        this.ip = data.ip;
+        this.disconnectReason = data.disconnectReason;
+    }
+
+    /**
+     * Returns a copy of this data. Changes to the copy can be applied to this data using
+     * {@link #applyChanges(HandshakeDataImpl)}.
+     */
+    public HandshakeDataImpl copy() {
+        return new HandshakeDataImpl(this);
+    }
+
+    /**
+     * Applies the changes that have been made to the given copy of this data.
+     */
+    public void applyChanges(HandshakeDataImpl copy) {
+        this.linkedPlayer = copy.linkedPlayer;
+        this.hostname = copy.hostname;
+        this.ip = copy.ip;
+        this.disconnectReason = copy.disconnectReason;
+    }
+
     @Override
     public String getCorrectUsername() {
         return linkedPlayer != null ? linkedPlayer.getJavaUsername() : javaUsername;
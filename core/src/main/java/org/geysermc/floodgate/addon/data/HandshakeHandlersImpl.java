@@ -25,16 +25,30 @@
 
 package org.geysermc.floodgate.addon.data;
 
-import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
-import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+import org.geysermc.floodgate.api.handshake.AsyncHandshakeHandler;
 import org.geysermc.floodgate.api.handshake.HandshakeData;
 import org.geysermc.floodgate.api.handshake.HandshakeHandler;
 import org.geysermc.floodgate.api.handshake.HandshakeHandlers;
 
+/**
+ * Handshake handlers are (un)registered rarely, but they're called for every Floodgate login on
+ * the handshake threads. Every change publishes a new sorted array, so that calling them is a
+ * plain loop without locks or iterators.
+ */
 public class HandshakeHandlersImpl implements HandshakeHandlers {
+    private static final Entry[] EMPTY = new Entry[0];
+    private static final CompletableFuture<Void> COMPLETED = CompletableFuture.completedFuture(null);
+
     private final Random random = new Random();
-    private final Int2ObjectMap<HandshakeHandler> handshakeHandlers = new Int2ObjectOpenHashMap<>();
+    private final AtomicReference<Entry[]> handshakeHandlers = new AtomicReference<>(EMPTY);
 
     @Override
     public int addHandshakeHandler(HandshakeHandler handshakeHandler) {
@@ -42,10 +56,29 @@ public class HandshakeHandlersImpl implements HandshakeHandlers {
             return -1;
         }
 
+        int priority = handshakeHandler.getPriority();
+        Entry[] current;
+        Entry[] updated;
         int key;
         do {
-            key = random.nextInt(Integer.MAX_VALUE);
-        } while (handshakeHandlers.putIfAbsent(key, handshakeHandler) != null);
+            current = handshakeHandlers.get();
+
+            // key is always positive
+            do {
+                key = random.nextInt(Integer.MAX_VALUE - 1) + 1;
+            } while (indexOf(current, key) != -1);
+
+            // add it after the last handler with the same (or a lower) priority
+            int index = current.length;
+            while (index > 0 && current[index - 1].priority > priority) {
+                index--;
+            }
+
+            updated = new Entry[current.length + 1];
+            System.arraycopy(current, 0, updated, 0, index);
+            updated[index] = new Entry(key, priority, handshakeHandler);
+            System.arraycopy(current, index, updated, index + 1, current.length - index);
+        } while (!handshakeHandlers.compareAndSet(current, updated));
 
         return key;
     }
@@ -57,7 +90,17 @@ public class HandshakeHandlersImpl implements HandshakeHandlers {
             return;
         }
 
-        handshakeHandlers.remove(handshakeHandlerId);
+        update(current -> {
+            int index = indexOf(current, handshakeHandlerId);
+            if (index == -1) {
+                return current;
+            }
+
+            Entry[] updated = new Entry[current.length - 1];
+            System.arraycopy(current, 0, updated, 0, index);
+            System.arraycopy(current, index + 1, updated, index, updated.length - index);
+            return updated;
+        });
     }
 
     @Override
@@ -66,12 +109,100 @@ public class HandshakeHandlersImpl implements HandshakeHandlers {
             return;
         }
 
-        handshakeHandlers.values().removeIf(handler -> handler.getClass() == handshakeHandler);
+        update(current -> {
+            Entry[] updated = Arrays.stream(current)
+                    .filter(entry -> entry.handler.getClass() != handshakeHandler)
+                    .toArray(Entry[]::new);
+            return updated.length == current.length ? current : updated;
+        });
     }
 
     public void callHandshakeHandlers(HandshakeData handshakeData) {
-        for (HandshakeHandler handshakeHandler : handshakeHandlers.values()) {
-            handshakeHandler.handle(handshakeData);
+        for (Entry entry : handshakeHandlers.get()) {
+            entry.handler.handle(handshakeData);
+        }
+    }
+
+    /**
+     * Calls the handshake handlers without waiting for the {@link AsyncHandshakeHandler}s. The
+     * async handshake handlers with the same priority run at the same time, the next priority is
+     * called once they're all done. The handlers before the first async handler are called on the
+     * current thread, the handlers after it on the given executor. This way they don't run on
+     * whatever thread the async handler completed its future on.
+     *
+     * @param handshakeData the data to call the handshake handlers with
+     * @param executor      the executor to call the handlers after an async handler on
+     * @return a future that completes once every handshake handler is done
+     */
+    public CompletableFuture<Void> callHandshakeHandlersAsync(
+            HandshakeData handshakeData,
+            Executor executor) {
+        return callHandshakeHandlersAsync(handshakeHandlers.get(), 0, handshakeData, executor);
+    }
+
+    private CompletableFuture<Void> callHandshakeHandlersAsync(
+            Entry[] entries,
+            int start,
+            HandshakeData handshakeData,
+            Executor executor) {
+
+        int index = start;
+        while (index < entries.length) {
+            int priority = entries[index].priority;
+            List<CompletableFuture<Void>> pending = null;
+
+            for (; index < entries.length && entries[index].priority == priority; index++) {
+                HandshakeHandler handler = entries[index].handler;
+                if (handler instanceof AsyncHandshakeHandler) {
+                    if (pending == null) {
+                        pending = new ArrayList<>();
+                    }
+                    pending.add(((AsyncHandshakeHandler) handler)
+                            .handleAsync(handshakeData)
+                            .toCompletableFuture());
+                    continue;
+                }
+                handler.handle(handshakeData);
+            }
+
+            if (pending != null) {
+                int next = index;
+                return CompletableFuture.allOf(pending.toArray(new CompletableFuture[0]))
+                        .thenComposeAsync(ignored ->
+                                callHandshakeHandlersAsync(entries, next, handshakeData, executor),
+                                executor);
+            }
+        }
+        return COMPLETED;
+    }
+
+    private void update(UnaryOperator<Entry[]> updateFunction) {
+        Entry[] current;
+        Entry[] updated;
+        do {
+            current = handshakeHandlers.get();
+            updated = updateFunction.apply(current);
+        } while (current != updated && !handshakeHandlers.compareAndSet(current, updated));
+    }
+
+    private static int indexOf(Entry[] entries, int key) {
+        for (int i = 0; i < entries.length; i++) {
+            if (entries[i].key == key) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static final class Entry {
+        private final int key;
+        private final int priority;
+        private final HandshakeHandler handler;
+
+        private Entry(int key, int priority, HandshakeHandler handler) {
+            this.key = key;
+            this.priority = priority;
+            this.handler = handler;
         }
     }
 }
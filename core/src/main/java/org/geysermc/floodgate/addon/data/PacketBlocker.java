@@ -28,6 +28,7 @@ package org.geysermc.floodgate.addon.data;
 import com.google.common.collect.Queues;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.util.ReferenceCountUtil;
 import java.util.Queue;
 
 /**
@@ -46,6 +47,8 @@ import java.util.Queue;
 public class PacketBlocker extends ChannelInboundHandlerAdapter {
     private final Queue<Object> packetQueue = Queues.newConcurrentLinkedQueue();
     private volatile boolean blockPackets;
+    private int maxQueuedPackets = -1;
+    private int queuedPackets;
 
     private ChannelHandlerContext ctx;
 
@@ -53,6 +56,17 @@ public class PacketBlocker extends ChannelInboundHandlerAdapter {
         blockPackets = true;
     }
 
+    /**
+     * Enables the packet blocker, but closes the connection once more than the given amount of
+     * packets have been blocked.
+     *
+     * @param maxQueuedPackets the maximum amount of packets to block
+     */
+    public void enable(int maxQueuedPackets) {
+        this.maxQueuedPackets = maxQueuedPackets;
+        enable();
+    }
+
     public void disable() {
         blockPackets = false;
 
@@ -70,6 +84,11 @@ public class PacketBlocker extends ChannelInboundHandlerAdapter {
     @Override
     public void channelRead(ChannelHandlerContext ctx, Object msg) {
         if (blockPackets || !packetQueue.isEmpty()) {
+            if (maxQueuedPackets != -1 && ++queuedPackets > maxQueuedPackets) {
+                ReferenceCountUtil.release(msg);
+                ctx.close();
+                return;
+            }
             packetQueue.add(msg);
             return;
         }
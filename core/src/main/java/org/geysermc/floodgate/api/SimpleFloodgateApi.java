@@ -25,24 +25,29 @@
 
 package org.geysermc.floodgate.api;
 
-import com.google.common.cache.Cache;
-import com.google.common.cache.CacheBuilder;
-import com.google.common.collect.ImmutableSet;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.inject.Inject;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 import org.geysermc.cumulus.form.Form;
 import org.geysermc.cumulus.form.util.FormBuilder;
 import org.geysermc.floodgate.api.logger.FloodgateLogger;
 import org.geysermc.floodgate.api.player.FloodgatePlayer;
+import org.geysermc.floodgate.api.player.PlayerSnapshot;
+import org.geysermc.floodgate.api.player.PlayerStatistics;
 import org.geysermc.floodgate.api.unsafe.Unsafe;
 import org.geysermc.floodgate.config.FloodgateConfig;
+import org.geysermc.floodgate.player.PendingRemoveStore;
+import org.geysermc.floodgate.player.PlayerStatisticsImpl;
 import org.geysermc.floodgate.pluginmessage.PluginMessageManager;
 import org.geysermc.floodgate.pluginmessage.channel.FormChannel;
 import org.geysermc.floodgate.pluginmessage.channel.TransferChannel;
@@ -52,15 +57,23 @@ import org.geysermc.floodgate.util.Utils;
 
 public class SimpleFloodgateApi implements FloodgateApi {
     private final Map<UUID, FloodgatePlayer> players = new ConcurrentHashMap<>();
-    private final Cache<UUID, FloodgatePlayer> pendingRemove =
-            CacheBuilder.newBuilder()
-                    .expireAfterWrite(20, TimeUnit.SECONDS)
-                    .build();
+    // the same players as above, but stored by their correct (Java) UUID for linked players
+    private final Map<UUID, FloodgatePlayer> playersByCorrectId = new ConcurrentHashMap<>();
+    // lowercase correct usernames (the name on the server), the gamertag has its own index
+    private final Map<String, FloodgatePlayer> playersByUsername = new ConcurrentHashMap<>();
+    private final Map<String, FloodgatePlayer> playersByGamertag = new ConcurrentHashMap<>();
+
+    // bumped every time a player joins or leaves, the snapshot is only rebuilt when it's outdated
+    private final AtomicLong playersVersion = new AtomicLong();
+    private volatile PlayerSnapshot playerSnapshot = new PlayerSnapshot(0, new FloodgatePlayer[0]);
+
+    private final PlayerStatisticsImpl statistics = new PlayerStatisticsImpl();
 
     @Inject private PluginMessageManager pluginMessageManager;
     @Inject private FloodgateConfig config;
     @Inject private HttpClient httpClient;
     @Inject private FloodgateLogger logger;
+    @Inject private PendingRemoveStore pendingRemove;
 
     @Override
     public String getPlayerPrefix() {
@@ -69,7 +82,27 @@ public class SimpleFloodgateApi implements FloodgateApi {
 
     @Override
     public Collection<FloodgatePlayer> getPlayers() {
-        return ImmutableSet.copyOf(players.values());
+        return getPlayerSnapshot().asSet();
+    }
+
+    @Override
+    public void forEachPlayer(Consumer<? super FloodgatePlayer> action) {
+        players.values().forEach(action);
+    }
+
+    @Override
+    public PlayerSnapshot getPlayerSnapshot() {
+        PlayerSnapshot snapshot = playerSnapshot;
+        long version = playersVersion.get();
+        if (snapshot.version() == version) {
+            return snapshot;
+        }
+
+        // a player could join while we're building it, but then the version is outdated already
+        // and the next call will build a new snapshot
+        snapshot = new PlayerSnapshot(version, players.values().toArray(new FloodgatePlayer[0]));
+        playerSnapshot = snapshot;
+        return snapshot;
     }
 
     @Override
@@ -92,19 +125,33 @@ public class SimpleFloodgateApi implements FloodgateApi {
         // bedrock players are always stored by their xuid,
         // so we return the instance if we know that the given uuid is a Floodgate uuid
         if (isFloodgateId(uuid)) {
-            return pendingRemove.getIfPresent(uuid);
+            return pendingRemove.getByJavaId(uuid);
         }
 
         // make it possible to find player by Java id (linked players)
-        for (FloodgatePlayer player : players.values()) {
-            if (player.getCorrectUniqueId().equals(uuid)) {
-                return player;
-            }
+        FloodgatePlayer linkedPlayer = playersByCorrectId.get(uuid);
+        if (linkedPlayer != null) {
+            return linkedPlayer;
         }
         // and don't forget the pending remove linked players
         return getPendingRemovePlayer(uuid);
     }
 
+    @Override
+    public PlayerStatistics getPlayerStatistics() {
+        return statistics;
+    }
+
+    @Override
+    public FloodgatePlayer getPlayerByUsername(String username) {
+        return playersByUsername.get(username.toLowerCase(Locale.ROOT));
+    }
+
+    @Override
+    public FloodgatePlayer getPlayerByGamertag(String gamertag) {
+        return playersByGamertag.get(gamertag.toLowerCase(Locale.ROOT));
+    }
+
     @Override
     public UUID createJavaPlayerId(long xuid) {
         return Utils.getJavaUuid(xuid);
@@ -131,6 +178,18 @@ public class SimpleFloodgateApi implements FloodgateApi {
         return sendForm(uuid, formBuilder.build());
     }
 
+    @Override
+    public boolean sendForm(Collection<UUID> uuids, Form form) {
+        List<FloodgatePlayer> recipients = new ArrayList<>(uuids.size());
+        for (UUID uuid : uuids) {
+            FloodgatePlayer player = getPlayer(uuid);
+            if (player != null) {
+                recipients.add(player);
+            }
+        }
+        return pluginMessageManager.getChannel(FormChannel.class).sendForm(recipients, form);
+    }
+
     @Override
     public boolean closeForm(UUID uuid) {
         FloodgatePlayer player = getPlayer(uuid);
@@ -204,7 +263,13 @@ public class SimpleFloodgateApi implements FloodgateApi {
 
     public FloodgatePlayer addPlayer(FloodgatePlayer player) {
         // Bedrock players are always stored by their xuid
-        return players.put(player.getJavaUniqueId(), player);
+        FloodgatePlayer oldPlayer = players.put(player.getJavaUniqueId(), player);
+        if (oldPlayer != null) {
+            removeFromIndexes(oldPlayer);
+        }
+        addToIndexes(player);
+        playersVersion.incrementAndGet();
+        return oldPlayer;
     }
 
     /**
@@ -212,29 +277,43 @@ public class SimpleFloodgateApi implements FloodgateApi {
      * dependant event hasn't fired yet
      */
     public boolean setPendingRemove(FloodgatePlayer player) {
-        pendingRemove.put(player.getJavaUniqueId(), player);
-        return players.remove(player.getJavaUniqueId(), player);
+        pendingRemove.put(player);
+
+        boolean removed = players.remove(player.getJavaUniqueId(), player);
+        if (removed) {
+            removeFromIndexes(player);
+            playersVersion.incrementAndGet();
+        }
+        return removed;
+    }
+
+    // Every index is a concurrent map on its own, they aren't updated atomically together.
+    // Lookups that need a consistent view of all the players should use the snapshot instead.
+    private void addToIndexes(FloodgatePlayer player) {
+        statistics.playerAdded(player);
+        playersByCorrectId.put(player.getCorrectUniqueId(), player);
+        playersByUsername.put(player.getCorrectUsername().toLowerCase(Locale.ROOT), player);
+        playersByGamertag.put(player.getUsername().toLowerCase(Locale.ROOT), player);
+    }
+
+    private void removeFromIndexes(FloodgatePlayer player) {
+        statistics.playerRemoved(player);
+        playersByCorrectId.remove(player.getCorrectUniqueId(), player);
+        playersByUsername.remove(player.getCorrectUsername().toLowerCase(Locale.ROOT), player);
+        playersByGamertag.remove(player.getUsername().toLowerCase(Locale.ROOT), player);
     }
 
     public void playerRemoved(UUID correctUuid) {
         // we can remove the player directly if it is a Floodgate UUID.
         // since it's stored by their Floodgate UUID
         if (isFloodgateId(correctUuid)) {
-            pendingRemove.invalidate(correctUuid);
+            pendingRemove.removeByJavaId(correctUuid);
             return;
         }
-        FloodgatePlayer linkedPlayer = getPendingRemovePlayer(correctUuid);
-        if (linkedPlayer != null) {
-            pendingRemove.invalidate(linkedPlayer.getJavaUniqueId());
-        }
+        pendingRemove.removeByCorrectId(correctUuid);
     }
 
     public FloodgatePlayer getPendingRemovePlayer(UUID correctUuid) {
-        for (FloodgatePlayer player : pendingRemove.asMap().values()) {
-            if (player.getCorrectUniqueId().equals(correctUuid)) {
-                return player;
-            }
-        }
-        return null;
+        return pendingRemove.getByCorrectId(correctUuid);
     }
 }
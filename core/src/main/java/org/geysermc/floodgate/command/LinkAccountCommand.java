@@ -37,6 +37,7 @@ import org.geysermc.floodgate.api.link.PlayerLink;
 import org.geysermc.floodgate.api.logger.FloodgateLogger;
 import org.geysermc.floodgate.command.util.Permission;
 import org.geysermc.floodgate.config.FloodgateConfig;
+import org.geysermc.floodgate.link.CachingPlayerLink;
 import org.geysermc.floodgate.link.GlobalPlayerLinking;
 import org.geysermc.floodgate.platform.command.FloodgateCommand;
 import org.geysermc.floodgate.platform.command.TranslatableMessage;
@@ -73,8 +74,9 @@ public final class LinkAccountCommand implements FloodgateCommand {
         PlayerLink link = api.getPlayerLink();
 
         //todo make this less hacky
-        if (link instanceof GlobalPlayerLinking) {
-            if (((GlobalPlayerLinking) link).getDatabaseImpl() != null) {
+        PlayerLink linkImpl = CachingPlayerLink.unwrap(link);
+        if (linkImpl instanceof GlobalPlayerLinking) {
+            if (((GlobalPlayerLinking) linkImpl).getDatabaseImpl() != null) {
                 sender.sendMessage(CommonCommandMessage.LOCAL_LINKING_NOTICE,
                         Constants.LINK_INFO_URL);
             } else {
@@ -33,6 +33,7 @@ import lombok.NoArgsConstructor;
 import org.geysermc.floodgate.api.FloodgateApi;
 import org.geysermc.floodgate.api.link.PlayerLink;
 import org.geysermc.floodgate.config.FloodgateConfig;
+import org.geysermc.floodgate.link.CachingPlayerLink;
 import org.geysermc.floodgate.link.GlobalPlayerLinking;
 import org.geysermc.floodgate.platform.command.FloodgateCommand;
 import org.geysermc.floodgate.platform.command.TranslatableMessage;
@@ -65,8 +66,9 @@ public final class UnlinkAccountCommand implements FloodgateCommand {
         PlayerLink link = api.getPlayerLink();
 
         //todo make this less hacky
-        if (link instanceof GlobalPlayerLinking) {
-            if (((GlobalPlayerLinking) link).getDatabaseImpl() != null) {
+        PlayerLink linkImpl = CachingPlayerLink.unwrap(link);
+        if (linkImpl instanceof GlobalPlayerLinking) {
+            if (((GlobalPlayerLinking) linkImpl).getDatabaseImpl() != null) {
                 sender.sendMessage(CommonCommandMessage.LOCAL_LINKING_NOTICE,
                         Constants.LINK_INFO_URL);
             } else {
@@ -42,6 +42,8 @@ import org.incendo.cloud.description.Description;
 public final class MainCommand extends SubCommands implements FloodgateCommand {
     public MainCommand() {
         defineSubCommand(FirewallCheckSubcommand.class);
+        defineSubCommand(ProfileSubcommand.class);
+        defineSubCommand(StatsSubcommand.class);
         defineSubCommand(VersionSubcommand.class);
     }
 
@@ -55,9 +57,9 @@ public final class MainCommand extends SubCommands implements FloodgateCommand {
                 .handler(this::execute);
 
         for (FloodgateSubCommand subCommand : subCommands()) {
-            commandManager.command(builder
+            commandManager.command(subCommand.onBuild(builder
                     .literal(subCommand.name().toLowerCase(Locale.ROOT), Description.of(subCommand.description()))
-                    .permission(subCommand.permission().get())
+                    .permission(subCommand.permission().get()))
                     .handler(subCommand::execute)
             );
         }
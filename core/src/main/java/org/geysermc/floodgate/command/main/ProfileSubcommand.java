@@ -0,0 +1,214 @@
+/*
+ * Copyright (c) 2019-2022 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/Floodgate
+ */
+
+package org.geysermc.floodgate.command.main;
+
+import static org.geysermc.floodgate.player.HandshakeProfiler.formatNanos;
+import static org.geysermc.floodgate.util.Constants.COLOR_CHAR;
+import static org.incendo.cloud.parser.standard.EnumParser.enumParser;
+
+import com.google.inject.Inject;
+import java.util.Locale;
+import java.util.Map;
+import org.geysermc.floodgate.api.link.PlayerLink;
+import org.geysermc.floodgate.command.util.Permission;
+import org.geysermc.floodgate.link.CachingPlayerLink;
+import org.geysermc.floodgate.link.CommonPlayerLink;
+import org.geysermc.floodgate.link.GlobalPlayerLinking;
+import org.geysermc.floodgate.platform.command.FloodgateSubCommand;
+import org.geysermc.floodgate.player.FloodgateHandshakeHandler.ResultType;
+import org.geysermc.floodgate.player.HandshakeExecutor;
+import org.geysermc.floodgate.player.HandshakeProfiler;
+import org.geysermc.floodgate.player.HandshakeProfiler.Stage;
+import org.geysermc.floodgate.player.HandshakeRateLimiter;
+import org.geysermc.floodgate.player.UserAudience;
+import org.geysermc.floodgate.pluginmessage.channel.FormChannel;
+import org.geysermc.floodgate.util.LatencyRecorder;
+import org.incendo.cloud.Command;
+import org.incendo.cloud.context.CommandContext;
+
+final class ProfileSubcommand extends FloodgateSubCommand {
+    @Inject
+    private HandshakeProfiler profiler;
+
+    @Inject
+    private HandshakeExecutor executor;
+
+    @Inject
+    private HandshakeRateLimiter rateLimiter;
+
+    @Inject
+    private FormChannel formChannel;
+
+    @Inject
+    private PlayerLink playerLink;
+
+    @Override
+    public String name() {
+        return "profile";
+    }
+
+    @Override
+    public String description() {
+        return "Shows how long Bedrock logins, form responses and link lookups take";
+    }
+
+    @Override
+    public Permission permission() {
+        return Permission.COMMAND_MAIN_PROFILE;
+    }
+
+    @Override
+    public Command.Builder<UserAudience> onBuild(Command.Builder<UserAudience> builder) {
+        return builder.required("target", enumParser(Target.class));
+    }
+
+    @Override
+    public void execute(CommandContext<UserAudience> context) {
+        Target target = context.get("target");
+        if (target == Target.FORMS) {
+            executeForms(context);
+            return;
+        }
+        if (target == Target.LINKS) {
+            executeLinks(context);
+            return;
+        }
+
+        StringBuilder message = new StringBuilder()
+                .append(COLOR_CHAR).append("eHandshake stages of the last ")
+                .append(HandshakeProfiler.SAMPLE_COUNT).append(" logins (p50/p95/p99/max):");
+
+        for (Stage stage : Stage.values()) {
+            appendPercentiles(message, stage.displayName(), profiler.percentiles(stage));
+        }
+
+        message.append('\n').append(COLOR_CHAR).append("eHandshake results: ")
+                .append(COLOR_CHAR).append('7');
+        boolean first = true;
+        for (ResultType result : ResultType.values()) {
+            long count = profiler.count(result);
+            if (count == 0) {
+                continue;
+            }
+            if (!first) {
+                message.append(", ");
+            }
+            first = false;
+            message.append(result.name().toLowerCase(Locale.ROOT)).append(' ').append(count);
+        }
+        if (first) {
+            message.append("none yet");
+        }
+
+        message.append('\n').append(COLOR_CHAR).append("eHandshake queue: ")
+                .append(COLOR_CHAR).append('7').append(executor.queueDepth()).append(" waiting, ")
+                .append(executor.rejectedCount()).append(" rejected");
+
+        if (rateLimiter.isEnabled()) {
+            message.append('\n').append(COLOR_CHAR).append("eRate limited handshakes: ")
+                    .append(COLOR_CHAR).append('7').append(rateLimiter.droppedCount());
+        }
+
+        context.sender().sendMessage(message.toString());
+    }
+
+    private void executeForms(CommandContext<UserAudience> context) {
+        StringBuilder message = new StringBuilder()
+                .append(COLOR_CHAR).append("eForm responses of the last ")
+                .append(LatencyRecorder.SAMPLE_COUNT).append(" responses (p50/p95/p99/max):");
+
+        appendPercentiles(message, "waiting", formChannel.getResponseQueueTime().percentiles());
+        appendPercentiles(message, "handling", formChannel.getResponseHandleTime().percentiles());
+
+        message.append('\n').append(COLOR_CHAR).append("eHandled responses: ")
+                .append(COLOR_CHAR).append('7')
+                .append(formChannel.getResponseHandleTime().count());
+
+        context.sender().sendMessage(message.toString());
+    }
+
+    private void executeLinks(CommandContext<UserAudience> context) {
+        StringBuilder message = new StringBuilder();
+
+        if (playerLink instanceof CachingPlayerLink) {
+            CachingPlayerLink cache = (CachingPlayerLink) playerLink;
+            message.append(COLOR_CHAR).append("eLink lookups of the last ")
+                    .append(LatencyRecorder.SAMPLE_COUNT)
+                    .append(" cache misses (p50/p95/p99/max):");
+
+            appendPercentiles(message, "lookup", cache.getLoadTime().percentiles());
+
+            message.append('\n').append(COLOR_CHAR).append("eLink cache: ")
+                    .append(COLOR_CHAR).append('7').append(cache.hitCount()).append(" hits, ")
+                    .append(cache.missCount()).append(" misses, ")
+                    .append(cache.coalescedCount()).append(" coalesced, ")
+                    .append(cache.size()).append(" cached");
+        } else {
+            message.append(COLOR_CHAR)
+                    .append("cLinks aren't cached, check 'player-link.cache' in the config");
+        }
+
+        PlayerLink link = CachingPlayerLink.unwrap(playerLink);
+        if (link instanceof GlobalPlayerLinking) {
+            link = ((GlobalPlayerLinking) link).getDatabaseImpl();
+        }
+        if (link instanceof CommonPlayerLink) {
+            Map<String, String> statistics = ((CommonPlayerLink) link).getStatistics();
+            if (!statistics.isEmpty()) {
+                message.append('\n').append(COLOR_CHAR).append("eDatabase:");
+            }
+            statistics.forEach((name, value) ->
+                    message.append('\n').append(COLOR_CHAR).append('b').append(name)
+                            .append(COLOR_CHAR).append("f - ").append(COLOR_CHAR).append('7')
+                            .append(value));
+        }
+
+        context.sender().sendMessage(message.toString());
+    }
+
+    private void appendPercentiles(StringBuilder message, String name, long[] percentiles) {
+        message.append('\n').append(COLOR_CHAR).append('b').append(name)
+                .append(COLOR_CHAR).append("f - ").append(COLOR_CHAR).append('7');
+
+        if (percentiles == null) {
+            message.append("no samples");
+            return;
+        }
+
+        for (int i = 0; i < percentiles.length; i++) {
+            if (i > 0) {
+                message.append(" / ");
+            }
+            message.append(formatNanos(percentiles[i]));
+        }
+    }
+
+    public enum Target {
+        HANDSHAKE,
+        FORMS,
+        LINKS
+    }
+}
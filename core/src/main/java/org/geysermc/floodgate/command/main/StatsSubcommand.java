@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2019-2022 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/Floodgate
+ */
+
+package org.geysermc.floodgate.command.main;
+
+import static org.geysermc.floodgate.util.Constants.COLOR_CHAR;
+
+import com.google.inject.Inject;
+import java.util.Map;
+import org.geysermc.floodgate.api.SimpleFloodgateApi;
+import org.geysermc.floodgate.api.player.PlayerStatistics;
+import org.geysermc.floodgate.command.util.Permission;
+import org.geysermc.floodgate.platform.command.FloodgateSubCommand;
+import org.geysermc.floodgate.player.UserAudience;
+import org.geysermc.floodgate.pluginmessage.channel.FormChannel;
+import org.incendo.cloud.context.CommandContext;
+
+final class StatsSubcommand extends FloodgateSubCommand {
+    @Inject
+    private SimpleFloodgateApi api;
+
+    @Inject
+    private FormChannel formChannel;
+
+    @Override
+    public String name() {
+        return "stats";
+    }
+
+    @Override
+    public String description() {
+        return "Shows which devices, versions and languages the online Bedrock players use";
+    }
+
+    @Override
+    public Permission permission() {
+        return Permission.COMMAND_MAIN_STATS;
+    }
+
+    @Override
+    public void execute(CommandContext<UserAudience> context) {
+        PlayerStatistics statistics = api.getPlayerStatistics();
+
+        StringBuilder message = new StringBuilder()
+                .append(COLOR_CHAR).append("eOnline Bedrock players: ")
+                .append(COLOR_CHAR).append('7').append(api.getPlayerCount());
+
+        appendCounts(message, "Device os", statistics.getDeviceOsCounts());
+        appendCounts(message, "Input mode", statistics.getInputModeCounts());
+        appendCounts(message, "Ui profile", statistics.getUiProfileCounts());
+        appendCounts(message, "Version", statistics.getVersionCounts());
+        appendCounts(message, "Language", statistics.getLanguageCounts());
+
+        message.append('\n').append(COLOR_CHAR).append("eOpen forms: ")
+                .append(COLOR_CHAR).append('7').append(formChannel.getOpenFormCount());
+
+        context.sender().sendMessage(message.toString());
+    }
+
+    private void appendCounts(StringBuilder message, String name, Map<?, Long> counts) {
+        message.append('\n').append(COLOR_CHAR).append('b').append(name)
+                .append(COLOR_CHAR).append("f - ").append(COLOR_CHAR).append('7');
+
+        if (counts.isEmpty()) {
+            message.append("none");
+            return;
+        }
+
+        boolean first = true;
+        for (Map.Entry<?, Long> entry : counts.entrySet()) {
+            if (!first) {
+                message.append(", ");
+            }
+            first = false;
+            message.append(entry.getKey()).append(": ").append(entry.getValue());
+        }
+    }
+}
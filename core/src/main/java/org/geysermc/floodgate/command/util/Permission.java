@@ -31,6 +31,8 @@ import static org.geysermc.floodgate.command.util.PermissionDefault.TRUE;
 public enum Permission {
     COMMAND_MAIN("floodgate.command.floodgate", TRUE),
     COMMAND_MAIN_FIREWALL(COMMAND_MAIN, "firewall", OP),
+    COMMAND_MAIN_PROFILE(COMMAND_MAIN, "profile", OP),
+    COMMAND_MAIN_STATS(COMMAND_MAIN, "stats", OP),
     COMMAND_MAIN_VERSION(COMMAND_MAIN, "version", OP),
     COMMAND_LINK("floodgate.command.linkaccount", TRUE),
     COMMAND_UNLINK("floodgate.command.unlinkaccount", TRUE),
@@ -73,6 +73,8 @@ public final class ConfigLoader {
                                         .keyRenamed("player-link.allow-linking", "player-link.allowed"))
                                 .version(2, Changes.versionBuilder()
                                         .keyRenamed("player-link.use-global-linking", "player-link.enable-global-linking"))
+                                // only new keys, they're added with their default value
+                                .version(3, Changes.versionBuilder())
                                 .build())
                         .definePlaceholder("metrics.uuid", UUID::randomUUID)
                         .postInitializeCallbackArgument(this)
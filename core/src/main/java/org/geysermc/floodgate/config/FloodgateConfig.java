@@ -46,6 +46,9 @@ public class FloodgateConfig implements GenericPostInitializeCallback<ConfigLoad
     private String defaultLocale;
 
     private DisconnectMessages disconnect;
+    private long pendingRemoveTime = 20;
+    private HandshakeConfig handshake = new HandshakeConfig();
+    private FormsConfig forms = new FormsConfig();
     private PlayerLinkConfig playerLink;
     private MetricsConfig metrics;
 
@@ -77,6 +80,21 @@ public class FloodgateConfig implements GenericPostInitializeCallback<ConfigLoad
             return CallbackResult.failed(exception.getMessage());
         }
 
+        // sections that have been added in a newer version of the config are missing when the
+        // config couldn't be updated, use their defaults instead
+        if (handshake == null) {
+            handshake = new HandshakeConfig();
+        }
+        if (forms == null) {
+            forms = new FormsConfig();
+        }
+        if (disconnect != null && disconnect.serverBusy == null) {
+            disconnect.serverBusy = DisconnectMessages.DEFAULT_SERVER_BUSY;
+        }
+        if (playerLink != null && playerLink.cache == null) {
+            playerLink.cache = new LinkCacheConfig();
+        }
+
         rawUsernamePrefix = usernamePrefix;
 
         // Java usernames can't be longer than 16 chars
@@ -91,17 +109,52 @@ public class FloodgateConfig implements GenericPostInitializeCallback<ConfigLoad
     public static class DisconnectMessages {
         private String invalidKey;
         private String invalidArgumentsLength;
+        private String serverBusy = DEFAULT_SERVER_BUSY;
+
+        private static final String DEFAULT_SERVER_BUSY =
+                "The server is busy, please try again in a moment";
+    }
+
+    @Getter
+    public static class HandshakeConfig {
+        private int threadCount = 2;
+        private int queueSize = 256;
+        private long slowLoginThreshold = 1000;
+        private boolean pauseReading = true;
+        private int maxQueuedPackets = 32;
+        private int rateLimit;
+        private int rateLimitBurst = 20;
+        private long handlerTimeout;
+    }
+
+    @Getter
+    public static class FormsConfig {
+        private int maxOpenForms;
+        private long expireTime;
+        private int serializedCacheSize;
+        private String responseThread = "direct";
+        private int responseThreadCount = 2;
+        private long slowResponseThreshold = 50;
     }
 
     @Getter
     public static class PlayerLinkConfig {
         private boolean enabled;
         private boolean requireLink;
+        private boolean trustProxyLinks;
         private boolean enableOwnLinking;
         private boolean allowed;
         private long linkCodeTimeout;
         private String type;
         private boolean enableGlobalLinking;
+        private LinkCacheConfig cache = new LinkCacheConfig();
+    }
+
+    @Getter
+    public static class LinkCacheConfig {
+        private int size = 1000;
+        private long expireTime = 300;
+        private long notLinkedExpireTime = 60;
     }
 
     @Getter
@@ -0,0 +1,397 @@
+/*
+ * Copyright (c) 2019-2022 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/Floodgate
+ */
+
+package org.geysermc.floodgate.link;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.geysermc.floodgate.api.link.LinkRequestResult;
+import org.geysermc.floodgate.api.link.PlayerLink;
+import org.geysermc.floodgate.config.FloodgateConfig.LinkCacheConfig;
+import org.geysermc.floodgate.util.LatencyRecorder;
+import org.geysermc.floodgate.util.LinkedPlayer;
+import org.geysermc.floodgate.util.Utils;
+
+/**
+ * Remembers the results of {@link #getLinkedPlayer(UUID)} of another PlayerLink, so that a player
+ * that joins again (or switches servers) doesn't cause another database or Global Linking lookup.
+ * Players that aren't linked are remembered as well, but for a shorter time.
+ * Lookups for the same player that happen at the same time share a single lookup.
+ * LinkedPlayer is mutable, so every caller gets its own copy of the cached LinkedPlayer.
+ */
+public final class CachingPlayerLink implements PlayerLink {
+    private final PlayerLink delegate;
+    private final Cache<UUID, CachedLink> cache;
+    private final ConcurrentMap<UUID, CompletableFuture<LinkedPlayer>> loading =
+            new ConcurrentHashMap<>();
+    private final long notLinkedTime;
+
+    // lookups that started before an invalidation shouldn't store their (possibly old) result
+    private final AtomicLong invalidations = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LatencyRecorder loadTime = new LatencyRecorder();
+
+    public CachingPlayerLink(PlayerLink delegate, LinkCacheConfig config) {
+        this.delegate = delegate;
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(config.getSize())
+                .expireAfterWrite(config.getExpireTime(), TimeUnit.SECONDS)
+                .build();
+        this.notLinkedTime = TimeUnit.SECONDS.toNanos(config.getNotLinkedExpireTime());
+    }
+
+    /**
+     * Returns the PlayerLink behind the given PlayerLink if it is a CachingPlayerLink, otherwise
+     * the given PlayerLink is returned.
+     */
+    public static PlayerLink unwrap(PlayerLink link) {
+        if (link instanceof CachingPlayerLink) {
+            return ((CachingPlayerLink) link).delegate;
+        }
+        return link;
+    }
+
+    @Override
+    public void load() {
+        delegate.load();
+    }
+
+    @Override
+    @NonNull
+    public CompletableFuture<LinkedPlayer> getLinkedPlayer(@NonNull UUID bedrockId) {
+        CachedLink cached = getCached(bedrockId);
+        if (cached != null) {
+            hits.increment();
+            return CompletableFuture.completedFuture(copy(cached.player));
+        }
+
+        CompletableFuture<LinkedPlayer> future = new CompletableFuture<>();
+        CompletableFuture<LinkedPlayer> current = loading.putIfAbsent(bedrockId, future);
+        if (current != null) {
+            // someone else is already looking this player up
+            coalesced.increment();
+            return current.thenApply(CachingPlayerLink::copy);
+        }
+
+        misses.increment();
+        long invalidation = invalidations.get();
+        long start = System.nanoTime();
+
+        CompletableFuture<LinkedPlayer> lookup;
+        try {
+            lookup = delegate.getLinkedPlayer(bedrockId);
+        } catch (Throwable throwable) {
+            lookup = Utils.failedFuture(throwable);
+        }
+
+        lookup.whenComplete((player, error) -> {
+            long now = System.nanoTime();
+            loadTime.record(now - start);
+
+            if (error == null && invalidations.get() == invalidation) {
+                cache.put(bedrockId, new CachedLink(copy(player), now));
+            }
+            loading.remove(bedrockId, future);
+
+            if (error != null) {
+                future.completeExceptionally(error);
+            } else {
+                future.complete(player);
+            }
+        });
+        return future;
+    }
+
+    @Override
+    @NonNull
+    public CompletableFuture<Map<UUID, LinkedPlayer>> getLinkedPlayers(
+            @NonNull Collection<UUID> bedrockIds) {
+        Map<UUID, LinkedPlayer> players = new HashMap<>();
+        // the lookups that are started by someone else, and the lookups we start ourselves
+        Map<UUID, CompletableFuture<LinkedPlayer>> running = new HashMap<>();
+        Map<UUID, CompletableFuture<LinkedPlayer>> started = new HashMap<>();
+
+        for (UUID bedrockId : bedrockIds) {
+            if (players.containsKey(bedrockId) || running.containsKey(bedrockId) ||
+                    started.containsKey(bedrockId)) {
+                continue;
+            }
+
+            CachedLink cached = getCached(bedrockId);
+            if (cached != null) {
+                hits.increment();
+                if (cached.player != null) {
+                    players.put(bedrockId, copy(cached.player));
+                }
+                continue;
+            }
+
+            CompletableFuture<LinkedPlayer> future = new CompletableFuture<>();
+            CompletableFuture<LinkedPlayer> current = loading.putIfAbsent(bedrockId, future);
+            if (current != null) {
+                coalesced.increment();
+                running.put(bedrockId, current);
+            } else {
+                misses.increment();
+                started.put(bedrockId, future);
+            }
+        }
+
+        if (!started.isEmpty()) {
+            loadAll(started);
+        }
+
+        List<CompletableFuture<LinkedPlayer>> lookups = new ArrayList<>(running.values());
+        lookups.addAll(started.values());
+        if (lookups.isEmpty()) {
+            return CompletableFuture.completedFuture(players);
+        }
+
+        return CompletableFuture.allOf(lookups.toArray(new CompletableFuture[0]))
+                .thenApply(ignored -> {
+                    // the lookups of someone else are shared with them
+                    addLinked(players, running, true);
+                    addLinked(players, started, false);
+                    return players;
+                });
+    }
+
+    private void loadAll(Map<UUID, CompletableFuture<LinkedPlayer>> started) {
+        long invalidation = invalidations.get();
+        long start = System.nanoTime();
+
+        CompletableFuture<Map<UUID, LinkedPlayer>> lookup;
+        try {
+            lookup = delegate.getLinkedPlayers(started.keySet());
+        } catch (Throwable throwable) {
+            lookup = Utils.failedFuture(throwable);
+        }
+
+        lookup.whenComplete((found, error) -> {
+            long now = System.nanoTime();
+            loadTime.record(now - start);
+
+            boolean store = error == null && invalidations.get() == invalidation;
+            started.forEach((bedrockId, future) -> {
+                LinkedPlayer player = error == null ? found.get(bedrockId) : null;
+                if (store) {
+                    cache.put(bedrockId, new CachedLink(copy(player), now));
+                }
+                loading.remove(bedrockId, future);
+
+                if (error != null) {
+                    future.completeExceptionally(error);
+                } else {
+                    future.complete(player);
+                }
+            });
+        });
+    }
+
+    private static void addLinked(
+            Map<UUID, LinkedPlayer> players,
+            Map<UUID, CompletableFuture<LinkedPlayer>> lookups,
+            boolean shared) {
+        lookups.forEach((bedrockId, lookup) -> {
+            LinkedPlayer player = lookup.join();
+            if (player != null) {
+                players.put(bedrockId, shared ? copy(player) : player);
+            }
+        });
+    }
+
+    private static LinkedPlayer copy(LinkedPlayer player) {
+        return player != null ? player.clone() : null;
+    }
+
+    @Override
+    @NonNull
+    public CompletableFuture<Boolean> isLinkedPlayer(@NonNull UUID playerId) {
+        // we can only answer it when it's a Bedrock uuid
+        CachedLink cached = getCached(playerId);
+        if (cached != null) {
+            hits.increment();
+            return CompletableFuture.completedFuture(cached.player != null);
+        }
+        return delegate.isLinkedPlayer(playerId);
+    }
+
+    @Override
+    @NonNull
+    public CompletableFuture<Void> linkPlayer(
+            @NonNull UUID bedrockId,
+            @NonNull UUID javaId,
+            @NonNull String username) {
+        return delegate.linkPlayer(bedrockId, javaId, username)
+                .whenComplete((ignored, error) -> invalidate(bedrockId));
+    }
+
+    @Override
+    @NonNull
+    public CompletableFuture<Void> unlinkPlayer(@NonNull UUID javaId) {
+        return delegate.unlinkPlayer(javaId)
+                .whenComplete((ignored, error) -> invalidateJavaId(javaId));
+    }
+
+    @Override
+    @NonNull
+    public CompletableFuture<?> createLinkRequest(
+            @NonNull UUID javaId,
+            @NonNull String javaUsername,
+            @NonNull String bedrockUsername) {
+        return delegate.createLinkRequest(javaId, javaUsername, bedrockUsername);
+    }
+
+    @Override
+    @NonNull
+    public CompletableFuture<LinkRequestResult> verifyLinkRequest(
+            @NonNull UUID bedrockId,
+            @NonNull String javaUsername,
+            @NonNull String bedrockUsername,
+            @NonNull String code) {
+        return delegate.verifyLinkRequest(bedrockId, javaUsername, bedrockUsername, code)
+                .whenComplete((result, error) -> {
+                    if (result == LinkRequestResult.LINK_COMPLETED) {
+                        invalidate(bedrockId);
+                    }
+                });
+    }
+
+    @Override
+    public String getName() {
+        return delegate.getName();
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return delegate.isEnabled();
+    }
+
+    @Override
+    public long getVerifyLinkTimeout() {
+        return delegate.getVerifyLinkTimeout();
+    }
+
+    @Override
+    public boolean isAllowLinking() {
+        return delegate.isAllowLinking();
+    }
+
+    @Override
+    public boolean isEnabledAndAllowed() {
+        return delegate.isEnabledAndAllowed();
+    }
+
+    @Override
+    public void stop() {
+        delegate.stop();
+    }
+
+    /**
+     * Returns the amount of lookups that didn't have to ask the PlayerLink behind this cache.
+     */
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * Returns the amount of lookups that had to ask the PlayerLink behind this cache.
+     */
+    public long missCount() {
+        return misses.sum();
+    }
+
+    /**
+     * Returns the amount of lookups that weren't cached, but that could share a lookup of the
+     * PlayerLink behind this cache that was already running.
+     */
+    public long coalescedCount() {
+        return coalesced.sum();
+    }
+
+    /**
+     * Returns the time it took the PlayerLink behind this cache to look players up.
+     */
+    public LatencyRecorder getLoadTime() {
+        return loadTime;
+    }
+
+    public long size() {
+        return cache.size();
+    }
+
+    private CachedLink getCached(UUID bedrockId) {
+        CachedLink cached = cache.getIfPresent(bedrockId);
+        if (cached == null) {
+            return null;
+        }
+        if (cached.player == null && System.nanoTime() - cached.loadedAt >= notLinkedTime) {
+            cache.asMap().remove(bedrockId, cached);
+            return null;
+        }
+        return cached;
+    }
+
+    private void invalidate(UUID bedrockId) {
+        invalidations.incrementAndGet();
+        cache.invalidate(bedrockId);
+        loading.remove(bedrockId);
+    }
+
+    private void invalidateJavaId(UUID javaId) {
+        invalidations.incrementAndGet();
+        // unlinking can also be requested with the uuid of the Bedrock player
+        cache.asMap().entrySet().removeIf(entry -> entry.getKey().equals(javaId) ||
+                entry.getValue().player != null &&
+                javaId.equals(entry.getValue().player.getJavaUniqueId()));
+    }
+
+    private static final class CachedLink {
+        // null if the player isn't linked
+        private final LinkedPlayer player;
+        private final long loadedAt;
+
+        private CachedLink(LinkedPlayer player, long loadedAt) {
+            this.player = player;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
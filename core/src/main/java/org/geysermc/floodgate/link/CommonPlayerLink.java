@@ -27,11 +27,19 @@ package org.geysermc.floodgate.link;
 
 import com.google.inject.Inject;
 import com.google.inject.Key;
+import com.google.inject.name.Named;
 import com.google.inject.name.Names;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.Map;
 import java.util.Random;
 import java.util.UUID;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 import lombok.AccessLevel;
 import lombok.Getter;
 import org.geysermc.event.Listener;
@@ -48,13 +56,19 @@ import org.geysermc.floodgate.util.InjectorHolder;
 
 @Listener
 public abstract class CommonPlayerLink implements PlayerLink {
+    // the max amount of expired link requests to remove from the database in one go
+    private static final int LINK_REQUEST_REAP_BATCH_SIZE = 500;
+
     @Getter(AccessLevel.PROTECTED)
-    private final ExecutorService executorService = Executors.newCachedThreadPool();
+    private volatile ExecutorService executorService = Executors.newCachedThreadPool();
 
     @Getter private boolean enabled;
     @Getter private boolean allowLinking;
     @Getter private long verifyLinkTimeout;
 
+    private ScheduledExecutorService scheduledPool;
+    private ScheduledFuture<?> linkRequestReaper;
+
     @Inject
     @Getter(AccessLevel.PROTECTED)
     private FloodgateLogger logger;
@@ -67,11 +81,80 @@ public abstract class CommonPlayerLink implements PlayerLink {
     private InjectorHolder injectorHolder;
 
     @Inject
-    private void init(FloodgateConfig config) {
+    private void init(
+            FloodgateConfig config,
+            @Named("commonScheduledPool") ScheduledExecutorService scheduledPool) {
         FloodgateConfig.PlayerLinkConfig linkConfig = config.getPlayerLink();
         enabled = linkConfig.isEnabled();
         allowLinking = linkConfig.isAllowed();
         verifyLinkTimeout = linkConfig.getLinkCodeTimeout();
+
+        this.scheduledPool = scheduledPool;
+    }
+
+    /**
+     * Calls {@link #removeExpiredLinkRequests(long, int)} every minute from now on.
+     * Implementations that store link requests should call this from {@link #load()},
+     * implementations without link requests (like Global Linking, which only wraps another
+     * implementation) shouldn't.
+     */
+    protected void scheduleLinkRequestReaper() {
+        if (linkRequestReaper == null) {
+            linkRequestReaper = scheduledPool.scheduleAtFixedRate(
+                    this::scheduleLinkRequestReap, 1, 1, TimeUnit.MINUTES);
+        }
+    }
+
+    private void scheduleLinkRequestReap() {
+        try {
+            // the database can be slow, don't let the common scheduled pool wait for it
+            executorService.execute(this::reapLinkRequests);
+        } catch (RejectedExecutionException ignored) {
+            // we're shutting down
+        }
+    }
+
+    private void reapLinkRequests() {
+        long requestedBefore = Instant.now().getEpochSecond() - verifyLinkTimeout;
+        try {
+            int removed;
+            do {
+                removed = removeExpiredLinkRequests(requestedBefore, LINK_REQUEST_REAP_BATCH_SIZE);
+            } while (removed >= LINK_REQUEST_REAP_BATCH_SIZE);
+        } catch (Exception exception) {
+            logger.error("Error while cleaning up link requests", exception);
+        }
+    }
+
+    /**
+     * Removes at most the given amount of link requests that were made before the given time from
+     * the database. This is called every minute once {@link #scheduleLinkRequestReaper()} has been
+     * called, until fewer than the given amount of link requests have been removed.
+     *
+     * @param requestedBefore the epoch second before which the link requests have been expired
+     * @param limit           the max amount of link requests to remove
+     * @return the amount of link requests that have been removed
+     */
+    protected int removeExpiredLinkRequests(long requestedBefore, int limit) throws Exception {
+        return 0;
+    }
+
+    /**
+     * Replaces the executor that runs the database queries, for implementations that can only run
+     * a limited amount of queries at the same time. This should be called from {@link #load()}.
+     */
+    protected void setExecutorService(ExecutorService executorService) {
+        ExecutorService previous = this.executorService;
+        this.executorService = executorService;
+        previous.shutdown();
+    }
+
+    /**
+     * Returns statistics of this implementation (for example of its connection pool) by name,
+     * which are shown by '/floodgate profile links'.
+     */
+    public Map<String, String> getStatistics() {
+        return Collections.emptyMap();
     }
 
     public String createCode() {
@@ -104,6 +187,9 @@ public abstract class CommonPlayerLink implements PlayerLink {
 
     @Override
     public void stop() {
+        if (linkRequestReaper != null) {
+            linkRequestReaper.cancel(false);
+        }
         executorService.shutdown();
     }
 
@@ -30,6 +30,9 @@ import static org.geysermc.floodgate.util.Constants.GET_BEDROCK_LINK;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.inject.Inject;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import lombok.Getter;
@@ -93,6 +96,37 @@ public class GlobalPlayerLinking extends CommonPlayerLink {
         });
     }
 
+    @Override
+    @NonNull
+    public CompletableFuture<Map<UUID, LinkedPlayer>> getLinkedPlayers(
+            @NonNull Collection<UUID> bedrockIds) {
+        if (databaseImpl == null) {
+            return super.getLinkedPlayers(bedrockIds);
+        }
+
+        return databaseImpl.getLinkedPlayers(bedrockIds).thenCompose(found -> {
+            // the players that aren't linked in our database can still be globally linked
+            Map<UUID, CompletableFuture<LinkedPlayer>> lookups = new HashMap<>();
+            for (UUID bedrockId : bedrockIds) {
+                if (!found.containsKey(bedrockId)) {
+                    lookups.computeIfAbsent(bedrockId, this::getLinkedPlayer0);
+                }
+            }
+
+            return CompletableFuture.allOf(lookups.values().toArray(new CompletableFuture[0]))
+                    .thenApply(ignored -> {
+                        Map<UUID, LinkedPlayer> players = new HashMap<>(found);
+                        lookups.forEach((bedrockId, lookup) -> {
+                            LinkedPlayer player = lookup.join();
+                            if (player != null) {
+                                players.put(bedrockId, player);
+                            }
+                        });
+                        return players;
+                    });
+        });
+    }
+
     @NonNull
     private CompletableFuture<LinkedPlayer> getLinkedPlayer0(@NonNull UUID bedrockId) {
         return CompletableFuture.supplyAsync(
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2019-2022 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/Floodgate
+ */
+package org.geysermc.floodgate.link;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.geysermc.floodgate.api.link.LinkRequest;
+
+/**
+ * Keeps the link requests of PlayerLink implementations that don't store them in their database.
+ * Requests are stored by the username of the Java player that made them, in the order they were
+ * made. Because of that the oldest (and thus the first to expire) requests are always at the
+ * start, so both removing the oldest request when the store is full and removing the expired
+ * requests don't have to go through every request.
+ */
+public final class LinkRequestStore {
+    private final Map<String, LinkRequest> requests = new LinkedHashMap<>();
+    private final int maxSize;
+
+    /**
+     * @param maxSize the max amount of requests to keep, when it's reached the oldest request is
+     *                removed
+     */
+    public LinkRequestStore(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    public synchronized void put(LinkRequest request) {
+        // a new request of the same player should move to the end, where the newest requests are
+        requests.remove(request.getJavaUsername());
+        if (requests.size() >= maxSize) {
+            Iterator<LinkRequest> iterator = requests.values().iterator();
+            iterator.next();
+            iterator.remove();
+        }
+        requests.put(request.getJavaUsername(), request);
+    }
+
+    /**
+     * Returns the request of the given Java player, or null if the player didn't make a request.
+     * The request can be expired when it hasn't been removed yet, so that the caller can tell the
+     * player that the request has been expired.
+     */
+    public synchronized LinkRequest get(String javaUsername) {
+        return requests.get(javaUsername);
+    }
+
+    public synchronized LinkRequest remove(String javaUsername) {
+        return requests.remove(javaUsername);
+    }
+
+    /**
+     * Removes at most the given amount of requests that were made before the given time.
+     *
+     * @param requestedBefore the epoch second before which the requests have been expired
+     * @param limit           the max amount of requests to remove
+     * @return the amount of removed requests
+     */
+    public synchronized int removeExpired(long requestedBefore, int limit) {
+        int removed = 0;
+        Iterator<LinkRequest> iterator = requests.values().iterator();
+        while (removed < limit && iterator.hasNext()) {
+            if (iterator.next().getRequestTime() >= requestedBefore) {
+                // every request after this one has been made later
+                break;
+            }
+            iterator.remove();
+            removed++;
+        }
+        return removed;
+    }
+
+    public synchronized int size() {
+        return requests.size();
+    }
+}
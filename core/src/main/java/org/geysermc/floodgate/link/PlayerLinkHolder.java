@@ -75,10 +75,19 @@ public final class PlayerLinkHolder {
         if (instance != null) {
             return instance;
         }
-        instance = load0();
+        instance = withCache(load0());
         return instance;
     }
 
+    private @NonNull PlayerLink withCache(@NonNull PlayerLink link) {
+        FloodgateConfig.LinkCacheConfig cacheConfig = config.getPlayerLink().getCache();
+        if (link instanceof DisabledPlayerLink || cacheConfig == null ||
+                cacheConfig.getSize() <= 0) {
+            return link;
+        }
+        return new CachingPlayerLink(link, cacheConfig);
+    }
+
     private @NonNull PlayerLink load0() {
         if (config == null) {
             throw new IllegalStateException("Config cannot be null!");
@@ -39,6 +39,7 @@ import java.nio.file.Path;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import lombok.RequiredArgsConstructor;
 import org.geysermc.configutils.file.template.ResourceTemplateReader;
 import org.geysermc.configutils.file.template.TemplateReader;
@@ -67,6 +68,10 @@ import org.geysermc.floodgate.inject.CommonPlatformInjector;
 import org.geysermc.floodgate.link.PlayerLinkHolder;
 import org.geysermc.floodgate.packet.PacketHandlersImpl;
 import org.geysermc.floodgate.player.FloodgateHandshakeHandler;
+import org.geysermc.floodgate.player.HandshakeExecutor;
+import org.geysermc.floodgate.player.HandshakeProfiler;
+import org.geysermc.floodgate.player.HandshakeRateLimiter;
+import org.geysermc.floodgate.player.PendingRemoveStore;
 import org.geysermc.floodgate.pluginmessage.PluginMessageManager;
 import org.geysermc.floodgate.skin.SkinUploadManager;
 import org.geysermc.floodgate.util.Constants;
@@ -165,6 +170,48 @@ public class CommonModule extends AbstractModule {
         return new ConfigLoader(dataDirectory, configClass, producer, cipher, reader);
     }
 
+    @Provides
+    @Singleton
+    public PendingRemoveStore pendingRemoveStore(
+            FloodgateConfig config,
+            @Named("commonScheduledPool") ScheduledExecutorService commonScheduledPool) {
+
+        PendingRemoveStore store = new PendingRemoveStore(
+                Math.max(1, config.getPendingRemoveTime()), 1, TimeUnit.SECONDS
+        );
+        store.start(commonScheduledPool);
+        eventBus.subscribe(ShutdownEvent.class, ignored -> store.stop());
+        return store;
+    }
+
+    @Provides
+    @Singleton
+    public HandshakeExecutor handshakeExecutor(FloodgateConfig config) {
+        FloodgateConfig.HandshakeConfig handshakeConfig = config.getHandshake();
+        HandshakeExecutor executor = new HandshakeExecutor(
+                Math.max(1, handshakeConfig.getThreadCount()),
+                Math.max(1, handshakeConfig.getQueueSize())
+        );
+        eventBus.subscribe(ShutdownEvent.class, ignored -> executor.shutdown(), PostOrder.LAST);
+        return executor;
+    }
+
+    @Provides
+    @Singleton
+    public HandshakeProfiler handshakeProfiler(FloodgateConfig config, FloodgateLogger logger) {
+        return new HandshakeProfiler(logger, config.getHandshake().getSlowLoginThreshold());
+    }
+
+    @Provides
+    @Singleton
+    public HandshakeRateLimiter handshakeRateLimiter(FloodgateConfig config) {
+        FloodgateConfig.HandshakeConfig handshakeConfig = config.getHandshake();
+        return new HandshakeRateLimiter(
+                handshakeConfig.getRateLimit(),
+                handshakeConfig.getRateLimitBurst()
+        );
+    }
+
     @Provides
     @Singleton
     public FloodgateHandshakeHandler handshakeHandler(
@@ -175,10 +222,14 @@ public class CommonModule extends AbstractModule {
             SkinUploadManager skinUploadManager,
             @Named("playerAttribute") AttributeKey<FloodgatePlayer> playerAttribute,
             FloodgateLogger logger,
-            LanguageManager languageManager) {
+            LanguageManager languageManager,
+            HandshakeExecutor handshakeExecutor,
+            HandshakeProfiler handshakeProfiler,
+            HandshakeRateLimiter handshakeRateLimiter) {
 
         return new FloodgateHandshakeHandler(handshakeHandlers, api, cipher, config,
-                skinUploadManager, playerAttribute, logger, languageManager);
+                skinUploadManager, playerAttribute, logger, languageManager, handshakeExecutor,
+                handshakeProfiler, handshakeRateLimiter);
     }
 
     @Provides
@@ -39,12 +39,14 @@ public final class PluginMessageModule extends AbstractModule {
     @Override
     protected void configure() {
         bind(PluginMessageRegister.class).asEagerSingleton();
+        // the listeners use the form channel directly
+        bind(FormChannel.class).in(Singleton.class);
     }
 
     @Singleton
     @ProvidesIntoSet
-    public PluginMessageChannel formChannel() {
-        return new FormChannel();
+    public PluginMessageChannel formChannel(FormChannel formChannel) {
+        return formChannel;
     }
 
     @Singleton
@@ -27,6 +27,7 @@ package org.geysermc.floodgate.platform.command;
 
 import org.geysermc.floodgate.command.util.Permission;
 import org.geysermc.floodgate.player.UserAudience;
+import org.incendo.cloud.Command;
 import org.incendo.cloud.context.CommandContext;
 
 public abstract class FloodgateSubCommand {
@@ -37,4 +38,14 @@ public abstract class FloodgateSubCommand {
     public abstract Permission permission();
 
     public abstract void execute(CommandContext<UserAudience> context);
+
+    /**
+     * Allows the subcommand to add literals and/or arguments after its name.
+     *
+     * @param builder the builder that already contains the name of the subcommand
+     * @return the builder to register the subcommand with
+     */
+    public Command.Builder<UserAudience> onBuild(Command.Builder<UserAudience> builder) {
+        return builder;
+    }
 }
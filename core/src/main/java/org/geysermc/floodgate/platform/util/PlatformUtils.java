@@ -25,6 +25,7 @@
 
 package org.geysermc.floodgate.platform.util;
 
+import java.util.UUID;
 import lombok.RequiredArgsConstructor;
 
 @RequiredArgsConstructor
@@ -42,6 +43,19 @@ public abstract class PlatformUtils {
 
     public abstract String serverImplementationName();
 
+    /**
+     * Runs the given task on the thread that owns the given player, which is the main thread (or
+     * the region thread of the player on Folia). Platforms that don't have such a thread (like
+     * proxies) don't run the task and return false.
+     *
+     * @param playerUuid the uuid of the online player
+     * @param task       the task to run
+     * @return true if the task has been scheduled or ran, false otherwise
+     */
+    public boolean runOnPlayerThread(UUID playerUuid, Runnable task) {
+        return false;
+    }
+
     public enum AuthType {
         ONLINE,
         PROXIED,
@@ -37,6 +37,12 @@ import it.unimi.dsi.fastutil.objects.ObjectObjectImmutablePair;
 import java.net.InetSocketAddress;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
 import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
@@ -50,6 +56,8 @@ import org.geysermc.floodgate.api.player.FloodgatePlayer;
 import org.geysermc.floodgate.api.player.PropertyKey;
 import org.geysermc.floodgate.config.FloodgateConfig;
 import org.geysermc.floodgate.crypto.FloodgateCipher;
+import org.geysermc.floodgate.player.HandshakeProfiler.Stage;
+import org.geysermc.floodgate.player.HandshakeProfiler.Timings;
 import org.geysermc.floodgate.skin.SkinUploadManager;
 import org.geysermc.floodgate.util.BedrockData;
 import org.geysermc.floodgate.util.Constants;
@@ -67,6 +75,9 @@ public final class FloodgateHandshakeHandler {
     private final AttributeKey<FloodgatePlayer> playerAttribute;
     private final FloodgateLogger logger;
     private final LanguageManager languageManager;
+    private final HandshakeExecutor executor;
+    private final HandshakeProfiler profiler;
+    private final HandshakeRateLimiter rateLimiter;
 
     public FloodgateHandshakeHandler(
             HandshakeHandlersImpl handshakeHandlers,
@@ -76,7 +87,10 @@ public final class FloodgateHandshakeHandler {
             SkinUploadManager skinUploadManager,
             AttributeKey<FloodgatePlayer> playerAttribute,
             FloodgateLogger logger,
-            LanguageManager languageManager) {
+            LanguageManager languageManager,
+            HandshakeExecutor executor,
+            HandshakeProfiler profiler,
+            HandshakeRateLimiter rateLimiter) {
 
         this.handshakeHandlers = handshakeHandlers;
         this.api = api;
@@ -86,154 +100,332 @@ public final class FloodgateHandshakeHandler {
         this.playerAttribute = playerAttribute;
         this.logger = logger;
         this.languageManager = languageManager;
+        this.executor = executor;
+        this.profiler = profiler;
+        this.rateLimiter = rateLimiter;
     }
 
     /**
-     * Separates the Floodgate data from the hostname
+     * Separates the Floodgate data from the hostname. This method is called for every connection,
+     * so the hostname is scanned in place and nothing is allocated when it doesn't contain
+     * Floodgate data.
      *
      * @param hostname the string to look in
-     * @return The first string is the Floodgate data (or null if there isn't) and the second string
-     * is the hostname without the Floodgate.
+     * @return the Floodgate data and the hostname without the Floodgate data, or null if the
+     * hostname doesn't contain Floodgate data
      */
     public HostnameSeparationResult separateHostname(@NonNull String hostname) {
-        String[] hostnameItems = hostname.split("\0");
-        String floodgateData = null;
-        int dataVersion = -1;
-
-        StringBuilder builder = new StringBuilder();
-        for (String value : hostnameItems) {
-            int version = FloodgateCipher.version(value);
-            if (floodgateData == null && version != -1) {
-                floodgateData = value;
-                dataVersion = version;
-                continue;
+        int length = hostname.length();
+        int segmentStart = 0;
+
+        while (segmentStart < length) {
+            int segmentEnd = hostname.indexOf('\0', segmentStart);
+            if (segmentEnd == -1) {
+                segmentEnd = length;
             }
 
-            if (builder.length() > 0) {
-                builder.append('\0');
+            if (hasFloodgateIdentifier(hostname, segmentStart, segmentEnd)) {
+                String floodgateData = hostname.substring(segmentStart, segmentEnd);
+                int version = FloodgateCipher.version(floodgateData);
+                if (version != -1) {
+                    return new HostnameSeparationResult(
+                            floodgateData, version,
+                            removeSegment(hostname, segmentStart, segmentEnd)
+                    );
+                }
             }
-            builder.append(value);
+
+            segmentStart = segmentEnd + 1;
+        }
+        return null;
+    }
+
+    private static boolean hasFloodgateIdentifier(String hostname, int start, int end) {
+        byte[] identifier = FloodgateCipher.IDENTIFIER;
+        if (end - start <= identifier.length) {
+            return false;
+        }
+
+        for (int i = 0; i < identifier.length; i++) {
+            if (hostname.charAt(start + i) != identifier[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String removeSegment(String hostname, int start, int end) {
+        int length = hostname.length();
+        if (start == 0) {
+            // remove the separator after the segment as well (if there is one)
+            return end == length ? "" : hostname.substring(end + 1);
         }
-        // the new hostname doesn't have Floodgate data anymore, if it had Floodgate data.
-        return new HostnameSeparationResult(floodgateData, dataVersion, builder.toString());
+        // remove the separator in front of the segment
+        return new StringBuilder(length - (end - start) - 1)
+                .append(hostname, 0, start - 1)
+                .append(hostname, end, length)
+                .toString();
     }
 
+    /**
+     * Handles the Floodgate data of a connection. The handshake handlers are called for every
+     * handshake, including the failed ones. An address that started too many handshakes gets the
+     * same result as invalid Floodgate data, without us having to decrypt anything.
+     */
     public CompletableFuture<HandshakeResult> handle(
             @NonNull Channel channel,
             @NonNull String floodgateDataString,
             @NonNull String hostname) {
 
+        Timings timings = profiler.start();
+
+        CompletableFuture<HandshakeResult> handshake;
+        if (rateLimiter.tryAcquire(channel.remoteAddress())) {
+            handshake = decryptAndHandle(channel, floodgateDataString, hostname, timings);
+        } else {
+            logger.debug("Too many handshakes from {}, disconnecting", channel.remoteAddress());
+            handshake = Utils.failedFuture(
+                    failure(ResultType.DECRYPT_ERROR, channel, null, hostname));
+        }
+
+        return handshake
+                .handle((result, error) -> {
+                    if (error == null) {
+                        return CompletableFuture.completedFuture(result);
+                    }
+                    return handleFailure(channel, hostname, error);
+                })
+                .thenCompose(Function.identity())
+                .whenComplete((result, ignored) -> finish(channel, timings, result));
+    }
+
+    private CompletableFuture<HandshakeResult> decryptAndHandle(
+            Channel channel,
+            String floodgateDataString,
+            String hostname,
+            Timings timings) {
+
         byte[] floodgateData = floodgateDataString.getBytes(Charsets.UTF_8);
 
-        return CompletableFuture.supplyAsync(() -> {
-
-            String decrypted;
-            try {
-                // the actual decryption of the data
-                decrypted = cipher.decryptToString(floodgateData);
-            } catch (InvalidFormatException e) {
-                // when the Floodgate format couldn't be found
-                throw callHandlerAndReturnResult(
-                        NOT_FLOODGATE_DATA,
-                        channel, null, hostname
-                );
-            } catch (Exception e) {
-                // all the other exceptions are caused by invalid/tempered Floodgate data
-                if (config.isDebug()) {
-                    e.printStackTrace();
-                }
+        CompletableFuture<BedrockData> dataFuture;
+        try {
+            dataFuture = CompletableFuture.supplyAsync(
+                    () -> decryptAndParse(channel, floodgateData, hostname, timings),
+                    executor
+            );
+        } catch (RejectedExecutionException exception) {
+            return Utils.failedFuture(exception);
+        }
 
-                throw callHandlerAndReturnResult(
-                        ResultType.DECRYPT_ERROR,
-                        channel, null, hostname
-                );
+        return dataFuture
+                .thenCompose(data -> fetchLinkedPlayer(data, timings))
+                .thenCompose(result ->
+                        handlePart2(channel, hostname, result.left(), result.right(), timings));
+    }
+
+    private void finish(Channel channel, Timings timings, HandshakeResult result) {
+        // handleFailure turns every error into a result, unless it failed itself
+        BedrockData bedrockData = result != null ? result.getBedrockData() : null;
+        String name = bedrockData != null
+                ? bedrockData.getUsername()
+                : String.valueOf(channel.remoteAddress());
+        ResultType resultType = result != null ? result.getResultType() : ResultType.EXCEPTION;
+        profiler.finish(timings, name, resultType);
+    }
+
+    /**
+     * Turns the error of a failed handshake into a result and lets the handshake handlers know
+     * about it. The handshake handlers are called the same way as for a successful handshake, so
+     * that an {@link org.geysermc.floodgate.api.handshake.AsyncHandshakeHandler} doesn't block
+     * the thread we're on. When the handshake executor is full, the handlers (up to the first
+     * async handler) are called on the current thread, which is the event loop of the channel.
+     */
+    private CompletableFuture<HandshakeResult> handleFailure(
+            Channel channel,
+            String hostname,
+            Throwable error) {
+
+        if (error instanceof CompletionException) {
+            if (error.getCause() == null) {
+                error.printStackTrace();
             }
+            error = error.getCause();
+        }
 
-            try {
-                BedrockData bedrockData = BedrockData.fromString(decrypted);
+        HandshakeResult result;
+        if (error instanceof HandshakeResult) {
+            result = (HandshakeResult) error;
+        } else if (error instanceof RejectedExecutionException) {
+            logger.debug("Handshake queue is full, disconnecting {}", channel.remoteAddress());
+            result = failure(ResultType.SERVER_BUSY, channel, null, hostname);
+        } else {
+            if (error instanceof TimeoutException) {
+                logger.warn("The handshake handlers didn't finish the login of {} in time",
+                        channel.remoteAddress());
+            } else {
+                error.printStackTrace();
+            }
+            result = failure(ResultType.EXCEPTION, channel, null, hostname);
+        }
 
-                if (bedrockData.getDataLength() != EXPECTED_LENGTH) {
-                    throw callHandlerAndReturnResult(
-                            INVALID_DATA_LENGTH,
-                            channel, bedrockData, hostname
-                    );
-                }
+        return callHandshakeHandlers(channel, (HandshakeDataImpl) result.getHandshakeData())
+                .handle((ignored, handlerError) -> {
+                    if (handlerError != null) {
+                        logger.error("A handshake handler failed to handle a failed login",
+                                handlerError);
+                    }
+                    return result;
+                });
+    }
 
-                // we'll use the LinkedPlayer provided by Bungee or Velocity (if they included one)
-                if (bedrockData.hasPlayerLink()) {
-                    throw handlePart2(channel, hostname, bedrockData, bedrockData.getLinkedPlayer());
-                }
-                //todo add option to not check for links when the data comes from a proxy
+    /**
+     * Calls the handshake handlers and fails the returned future with a {@link TimeoutException}
+     * when they didn't finish within the configured handler timeout. Handlers that are still
+     * running after the timeout can't change the given data anymore, because the handlers get a
+     * copy of it. The changes of the copy are only applied when the handlers finished in time.
+     */
+    private CompletableFuture<Void> callHandshakeHandlers(
+            Channel channel,
+            HandshakeDataImpl handshakeData) {
 
-                // let's check if there is a link
-                return bedrockData;
+        long timeout = config.getHandshake().getHandlerTimeout();
+        if (timeout <= 0) {
+            return handshakeHandlers.callHandshakeHandlersAsync(handshakeData, executor);
+        }
 
-            } catch (Exception exception) {
-                if (exception instanceof HandshakeResult) {
-                    throw (HandshakeResult) exception;
-                }
-                exception.printStackTrace();
+        HandshakeDataImpl handlerData = handshakeData.copy();
+        CompletableFuture<Void> handlers =
+                handshakeHandlers.callHandshakeHandlersAsync(handlerData, executor);
 
-                throw callHandlerAndReturnResult(
-                        ResultType.EXCEPTION,
-                        channel, null, hostname
-                );
+        // either the handlers or the timeout completes the result, the other one is ignored
+        AtomicBoolean completed = new AtomicBoolean();
+        CompletableFuture<Void> result = new CompletableFuture<>();
+
+        // Java 8 doesn't have orTimeout, the event loop of the channel can schedule it for us
+        ScheduledFuture<?> timeoutTask = channel.eventLoop().schedule(() -> {
+            if (completed.compareAndSet(false, true)) {
+                result.completeExceptionally(new TimeoutException());
             }
-        }).thenCompose(this::fetchLinkedPlayer).handle((result, error) -> {
-            if (error == null) {
-                return handlePart2(channel, hostname, result.left(), result.right());
+        }, timeout, TimeUnit.MILLISECONDS);
+
+        handlers.whenComplete((ignored, error) -> {
+            timeoutTask.cancel(false);
+            if (!completed.compareAndSet(false, true)) {
+                return;
             }
+            if (error != null) {
+                result.completeExceptionally(error);
+                return;
+            }
+            handshakeData.applyChanges(handlerData);
+            result.complete(null);
+        });
+        return result;
+    }
 
-            if (error instanceof CompletionException) {
-                if (error.getCause() == null) {
-                    error.printStackTrace();
-                }
-                error = error.getCause();
+    private BedrockData decryptAndParse(
+            Channel channel,
+            byte[] floodgateData,
+            String hostname,
+            Timings timings) {
+
+        timings.lap(Stage.QUEUE);
+
+        String decrypted;
+        try {
+            // the actual decryption of the data
+            decrypted = cipher.decryptToString(floodgateData);
+            timings.lap(Stage.DECRYPT);
+        } catch (InvalidFormatException e) {
+            // when the Floodgate format couldn't be found
+            throw failure(
+                    NOT_FLOODGATE_DATA,
+                    channel, null, hostname
+            );
+        } catch (Exception e) {
+            // all the other exceptions are caused by invalid/tempered Floodgate data
+            if (config.isDebug()) {
+                e.printStackTrace();
             }
 
-            if (error instanceof HandshakeResult) {
-                return (HandshakeResult) error;
+            throw failure(
+                    ResultType.DECRYPT_ERROR,
+                    channel, null, hostname
+            );
+        }
+
+        try {
+            BedrockData bedrockData = BedrockData.fromString(decrypted);
+            timings.lap(Stage.PARSE);
+
+            if (bedrockData.getDataLength() != EXPECTED_LENGTH) {
+                throw failure(
+                        INVALID_DATA_LENGTH,
+                        channel, bedrockData, hostname
+                );
             }
 
-            error.printStackTrace();
+            return bedrockData;
+        } catch (Exception exception) {
+            if (exception instanceof HandshakeResult) {
+                throw (HandshakeResult) exception;
+            }
+            exception.printStackTrace();
 
-            return callHandlerAndReturnResult(
+            throw failure(
                     ResultType.EXCEPTION,
                     channel, null, hostname
             );
-        });
+        }
     }
 
-    private HandshakeResult handlePart2(
+    private CompletableFuture<HandshakeResult> handlePart2(
             Channel channel,
             String hostname,
             BedrockData bedrockData,
-            LinkedPlayer linkedPlayer) {
+            LinkedPlayer linkedPlayer,
+            Timings timings) {
+
+        HandshakeDataImpl handshakeData = new HandshakeDataImpl(
+                channel, true, bedrockData.clone(), config,
+                linkedPlayer != null ? linkedPlayer.clone() : null, hostname);
+
+        if (config.getPlayerLink().isRequireLink() && linkedPlayer == null) {
+            String reason = languageManager.getString(
+                    "floodgate.core.not_linked",
+                    bedrockData.getLanguageCode(),
+                    Constants.LINK_INFO_URL
+            );
+            handshakeData.setDisconnectReason(reason);
+        }
 
-        try {
-            HandshakeData handshakeData = new HandshakeDataImpl(
-                    channel, true, bedrockData.clone(), config,
-                    linkedPlayer != null ? linkedPlayer.clone() : null, hostname);
-
-            if (config.getPlayerLink().isRequireLink() && linkedPlayer == null) {
-                String reason = languageManager.getString(
-                        "floodgate.core.not_linked",
-                        bedrockData.getLanguageCode(),
-                        Constants.LINK_INFO_URL
-                );
-                handshakeData.setDisconnectReason(reason);
-            }
+        return callHandshakeHandlers(channel, handshakeData)
+                .thenRun(() -> timings.lap(Stage.HANDSHAKE_HANDLERS))
+                // continue on our own threads, the handlers can complete on any thread they like
+                .thenApplyAsync(ignored -> {
+                    timings.lap(Stage.QUEUE);
+                    return handlePart3(channel, hostname, bedrockData, handshakeData, timings);
+                }, executor);
+    }
 
-            handshakeHandlers.callHandshakeHandlers(handshakeData);
+    private HandshakeResult handlePart3(
+            Channel channel,
+            String hostname,
+            BedrockData bedrockData,
+            HandshakeData handshakeData,
+            Timings timings) {
 
+        try {
             if (!handshakeData.shouldDisconnect()) {
                 skinUploadManager.addConnectionIfNeeded(bedrockData.getSubscribeId(),
                         bedrockData.getVerifyCode());
+                timings.lap(Stage.SKIN_UPLOAD);
             }
 
             FloodgatePlayer player = FloodgatePlayerImpl.from(bedrockData, handshakeData);
 
             api.addPlayer(player);
+            timings.lap(Stage.ADD_PLAYER);
 
             channel.attr(playerAttribute).set(player);
 
@@ -243,12 +435,16 @@ public final class FloodgateHandshakeHandler {
 
             return new HandshakeResult(ResultType.SUCCESS, handshakeData, bedrockData, player);
         } catch (Exception exception) {
-            exception.printStackTrace();
-            return callHandlerAndReturnResult(ResultType.EXCEPTION, channel, null, hostname);
+            // the handshake handlers are called for the failure in handleFailure
+            throw new CompletionException(exception);
         }
     }
 
-    private HandshakeResult callHandlerAndReturnResult(
+    /**
+     * Creates the result of a failed handshake. The handshake handlers haven't been called for it
+     * yet, that happens in {@link #handleFailure(Channel, String, Throwable)}.
+     */
+    private HandshakeResult failure(
             ResultType resultType,
             Channel channel,
             BedrockData bedrockData,
@@ -256,24 +452,35 @@ public final class FloodgateHandshakeHandler {
 
         HandshakeData handshakeData = new HandshakeDataImpl(channel, bedrockData != null,
                 bedrockData, config, null, hostname);
-        handshakeHandlers.callHandshakeHandlers(handshakeData);
-
         return new HandshakeResult(resultType, handshakeData, bedrockData, null);
     }
 
-    private CompletableFuture<Pair<BedrockData, LinkedPlayer>> fetchLinkedPlayer(BedrockData data) {
-        if (!api.getPlayerLink().isEnabled()) {
+    private CompletableFuture<Pair<BedrockData, LinkedPlayer>> fetchLinkedPlayer(
+            BedrockData data,
+            Timings timings) {
+
+        // we'll use the LinkedPlayer provided by Bungee or Velocity (if they included one)
+        if (data.hasPlayerLink()) {
+            return CompletableFuture.completedFuture(
+                    new ObjectObjectImmutablePair<>(data, data.getLinkedPlayer()));
+        }
+
+        // the proxy already looked up the link, and it didn't include one, so it isn't linked
+        if (!api.getPlayerLink().isEnabled() ||
+                data.isFromProxy() && config.getPlayerLink().isTrustProxyLinks()) {
             return CompletableFuture.completedFuture(new ObjectObjectImmutablePair<>(data, null));
         }
+
+        // let's check if there is a link
         return api.getPlayerLink().getLinkedPlayer(Utils.getJavaUuid(data.getXuid()))
-                .thenApply(link -> new ObjectObjectImmutablePair<>(data, link))
-                .handle((result, error) -> {
+                .handle((link, error) -> {
+                    timings.lap(Stage.LINK_LOOKUP);
                     if (error != null) {
                         logger.error("The player linking implementation returned an error",
                                 error.getCause());
                         return new ObjectObjectImmutablePair<>(data, null);
                     }
-                    return result;
+                    return new ObjectObjectImmutablePair<>(data, link);
                 });
     }
 
@@ -282,6 +489,7 @@ public final class FloodgateHandshakeHandler {
         NOT_FLOODGATE_DATA,
         DECRYPT_ERROR,
         INVALID_DATA_LENGTH,
+        SERVER_BUSY,
         SUCCESS
     }
 
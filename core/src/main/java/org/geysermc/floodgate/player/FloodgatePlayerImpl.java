@@ -28,6 +28,7 @@ package org.geysermc.floodgate.player;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.function.Supplier;
 import lombok.AccessLevel;
 import lombok.Getter;
@@ -66,10 +67,15 @@ public final class FloodgatePlayerImpl implements FloodgatePlayer {
     private final int subscribeId;
     private final String verifyCode;
 
-    @Getter(AccessLevel.PRIVATE)
-    private Map<PropertyKey, Object> propertyKeyToValue;
-    @Getter(AccessLevel.PRIVATE)
-    private Map<String, PropertyKey> stringToPropertyKey;
+    // the values of the keys in PropertySlots, other keys are stored in the maps below
+    @Getter(AccessLevel.NONE)
+    private final AtomicReferenceArray<Object> slotValues =
+            new AtomicReferenceArray<>(PropertySlots.SLOT_COUNT);
+
+    @Getter(AccessLevel.NONE)
+    private volatile Map<PropertyKey, Object> propertyKeyToValue;
+    @Getter(AccessLevel.NONE)
+    private volatile Map<String, PropertyKey> stringToPropertyKey;
 
     static FloodgatePlayerImpl from(BedrockData data, HandshakeData handshakeData) {
         FloodgateApi api = FloodgateApi.getInstance();
@@ -112,6 +118,11 @@ public final class FloodgatePlayerImpl implements FloodgatePlayer {
 
     @Override
     public boolean hasProperty(PropertyKey key) {
+        int slot = PropertySlots.slotOf(key);
+        if (slot != -1) {
+            return slotValues.get(slot) != null;
+        }
+
         if (propertyKeyToValue == null) {
             return false;
         }
@@ -120,6 +131,11 @@ public final class FloodgatePlayerImpl implements FloodgatePlayer {
 
     @Override
     public boolean hasProperty(String key) {
+        int slot = PropertySlots.slotOf(key);
+        if (slot != -1) {
+            return slotValues.get(slot) != null;
+        }
+
         if (stringToPropertyKey == null) {
             return false;
         }
@@ -128,6 +144,11 @@ public final class FloodgatePlayerImpl implements FloodgatePlayer {
 
     @Override
     public <T> T getProperty(PropertyKey key) {
+        int slot = PropertySlots.slotOf(key);
+        if (slot != -1) {
+            return (T) slotValues.get(slot);
+        }
+
         if (propertyKeyToValue == null) {
             return null;
         }
@@ -136,6 +157,11 @@ public final class FloodgatePlayerImpl implements FloodgatePlayer {
 
     @Override
     public <T> T getProperty(String key) {
+        int slot = PropertySlots.slotOf(key);
+        if (slot != -1) {
+            return (T) slotValues.get(slot);
+        }
+
         if (stringToPropertyKey == null) {
             return null;
         }
@@ -144,6 +170,11 @@ public final class FloodgatePlayerImpl implements FloodgatePlayer {
 
     @Override
     public <T> T removeProperty(String key) {
+        int slot = PropertySlots.slotOf(key);
+        if (slot != -1) {
+            return removeSlot(slot);
+        }
+
         if (stringToPropertyKey == null) {
             return null;
         }
@@ -159,6 +190,11 @@ public final class FloodgatePlayerImpl implements FloodgatePlayer {
 
     @Override
     public <T> T removeProperty(PropertyKey key) {
+        int slot = PropertySlots.slotOf(key);
+        if (slot != -1) {
+            return removeSlot(slot);
+        }
+
         if (stringToPropertyKey == null) {
             return null;
         }
@@ -176,15 +212,13 @@ public final class FloodgatePlayerImpl implements FloodgatePlayer {
 
     @Override
     public <T> T addProperty(PropertyKey key, Object value) {
-        if (stringToPropertyKey == null) {
-            stringToPropertyKey = new ConcurrentHashMap<>();
-            propertyKeyToValue = new ConcurrentHashMap<>();
-
-            stringToPropertyKey.put(key.getKey(), key);
-            propertyKeyToValue.put(key, value);
-            return null;
+        int slot = PropertySlots.slotOf(key);
+        if (slot != -1) {
+            return addSlot(slot, PropertySlots.keyOf(slot).isAddAllowed(key), value);
         }
 
+        initPropertyMaps();
+
         PropertyKey propertyKey = stringToPropertyKey.get(key.getKey());
 
         if (propertyKey != null && propertyKey.isAddAllowed(key) == Result.ALLOWED) {
@@ -200,17 +234,14 @@ public final class FloodgatePlayerImpl implements FloodgatePlayer {
 
     @Override
     public <T> T addProperty(String key, Object value) {
-        PropertyKey propertyKey = new PropertyKey(key, true, true);
-
-        if (stringToPropertyKey == null) {
-            stringToPropertyKey = new ConcurrentHashMap<>();
-            propertyKeyToValue = new ConcurrentHashMap<>();
-
-            stringToPropertyKey.put(key, propertyKey);
-            propertyKeyToValue.put(propertyKey, value);
-            return null;
+        int slot = PropertySlots.slotOf(key);
+        if (slot != -1) {
+            return addSlot(slot, PropertySlots.keyOf(slot).isAddAllowed(key), value);
         }
 
+        initPropertyMaps();
+
+        PropertyKey propertyKey = new PropertyKey(key, true, true);
         PropertyKey currentPropertyKey = stringToPropertyKey.get(key);
 
         // key is always changeable if it passes this if statement
@@ -226,15 +257,58 @@ public final class FloodgatePlayerImpl implements FloodgatePlayer {
     }
 
     public <T> T getOrAddProperty(PropertyKey key, Supplier<T> supplier) {
-        if (stringToPropertyKey == null) {
-            stringToPropertyKey = new ConcurrentHashMap<>();
-            propertyKeyToValue = new ConcurrentHashMap<>();
+        int slot = PropertySlots.slotOf(key);
+        if (slot != -1) {
+            Object current = slotValues.get(slot);
+            if (current != null) {
+                return (T) current;
+            }
+            // the supplier can be called more than once when racing, but only one value is used
+            T value = supplier.get();
+            if (slotValues.compareAndSet(slot, null, value)) {
+                return value;
+            }
+            return (T) slotValues.get(slot);
         }
 
+        initPropertyMaps();
+
         // The hashcode & equals of PropertyKey is based on the hashcode of key.
         // stringToPropertyKey is solely for the updatable & removable checks, which we still handle
         // correctly by using ifAbsent for both.
         stringToPropertyKey.putIfAbsent(key.getKey(), key);
         return (T) propertyKeyToValue.computeIfAbsent(key, (unused) -> supplier.get());
     }
+
+    private <T> T addSlot(int slot, Result addAllowed, Object value) {
+        // the same rules as the maps: the value can only be replaced if it's allowed,
+        // and if it isn't allowed the current key is returned
+        if (addAllowed == Result.ALLOWED) {
+            return (T) slotValues.getAndSet(slot, value);
+        }
+        if (slotValues.compareAndSet(slot, null, value)) {
+            return null;
+        }
+        return (T) PropertySlots.keyOf(slot);
+    }
+
+    private <T> T removeSlot(int slot) {
+        if (!PropertySlots.keyOf(slot).isRemovable()) {
+            return null;
+        }
+        return (T) slotValues.getAndSet(slot, null);
+    }
+
+    private void initPropertyMaps() {
+        if (stringToPropertyKey != null) {
+            return;
+        }
+        synchronized (this) {
+            if (stringToPropertyKey == null) {
+                // propertyKeyToValue is assigned first, so it's never null when the other isn't
+                propertyKeyToValue = new ConcurrentHashMap<>();
+                stringToPropertyKey = new ConcurrentHashMap<>();
+            }
+        }
+    }
 }
@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2019-2022 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/Floodgate
+ */
+
+package org.geysermc.floodgate.player;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The executor that handles the expensive parts of a Floodgate login (decrypting and parsing the
+ * data, and calling the handshake handlers). It has a fixed amount of threads and a bounded
+ * queue, so that a flood of logins can't starve the common pool (which is shared with every
+ * other plugin) and the server can kick new connections immediately when it can't keep up.
+ */
+public final class HandshakeExecutor extends ThreadPoolExecutor {
+    private final LongAdder rejectedCount = new LongAdder();
+
+    public HandshakeExecutor(int threadCount, int queueSize) {
+        super(
+                threadCount, threadCount,
+                60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueSize),
+                new ThreadFactoryBuilder()
+                        .setNameFormat("floodgate-handshake-%d")
+                        .setDaemon(true)
+                        .build()
+        );
+        allowCoreThreadTimeOut(true);
+        setRejectedExecutionHandler((runnable, executor) -> {
+            rejectedCount.increment();
+            throw new RejectedExecutionException("The Floodgate handshake queue is full");
+        });
+    }
+
+    /**
+     * Returns the amount of handshakes that are waiting for a free handshake thread.
+     */
+    public int queueDepth() {
+        return getQueue().size();
+    }
+
+    /**
+     * Returns the amount of handshakes that were rejected because the queue was full.
+     */
+    public long rejectedCount() {
+        return rejectedCount.sum();
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2019-2022 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/Floodgate
+ */
+
+package org.geysermc.floodgate.player;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.geysermc.floodgate.api.logger.FloodgateLogger;
+import org.geysermc.floodgate.player.FloodgateHandshakeHandler.ResultType;
+import org.geysermc.floodgate.util.LatencyRecorder;
+
+/**
+ * Keeps track of how long every stage of a Floodgate login takes. The latest
+ * {@link #SAMPLE_COUNT} samples of every stage are kept to calculate the percentiles, and logins
+ * that take longer than the configured threshold are logged with their breakdown.
+ * Every login is counted by its {@link ResultType}, but only successful logins are part of the
+ * {@link Stage#TOTAL} samples so that quick rejections don't hide slow logins.
+ */
+public final class HandshakeProfiler {
+    public static final int SAMPLE_COUNT = LatencyRecorder.SAMPLE_COUNT;
+
+    private final LatencyRecorder[] recorders = new LatencyRecorder[Stage.VALUES.length];
+    private final LongAdder[] results = new LongAdder[ResultType.values().length];
+    private final FloodgateLogger logger;
+    private final long slowThreshold;
+
+    public HandshakeProfiler(FloodgateLogger logger, long slowThresholdMillis) {
+        this.logger = logger;
+        this.slowThreshold = TimeUnit.MILLISECONDS.toNanos(slowThresholdMillis);
+        for (int i = 0; i < recorders.length; i++) {
+            recorders[i] = new LatencyRecorder();
+        }
+        for (int i = 0; i < results.length; i++) {
+            results[i] = new LongAdder();
+        }
+    }
+
+    public Timings start() {
+        return new Timings();
+    }
+
+    void finish(Timings timings, String name, ResultType result) {
+        long total = System.nanoTime() - timings.start;
+        if (result == ResultType.SUCCESS) {
+            timings.durations[Stage.TOTAL.ordinal()] = total;
+        }
+
+        for (Stage stage : Stage.VALUES) {
+            long duration = timings.durations[stage.ordinal()];
+            if (duration != -1) {
+                recorders[stage.ordinal()].record(duration);
+            }
+        }
+        results[result.ordinal()].increment();
+
+        if (slowThreshold > 0 && total >= slowThreshold) {
+            logger.warn("The login of {} took {} ({}): {}",
+                    name, formatNanos(total), result, timings);
+        }
+    }
+
+    /**
+     * Returns the percentiles (p50, p95, p99 and max) of the given stage in nanoseconds, or null
+     * if the stage didn't have any samples yet.
+     */
+    public long[] percentiles(Stage stage) {
+        return recorders[stage.ordinal()].percentiles();
+    }
+
+    /**
+     * Returns the amount of logins that ended with the given result.
+     */
+    public long count(ResultType result) {
+        return results[result.ordinal()].sum();
+    }
+
+    public static String formatNanos(long nanos) {
+        return LatencyRecorder.formatNanos(nanos);
+    }
+
+    public enum Stage {
+        QUEUE("queue"),
+        DECRYPT("decrypt"),
+        PARSE("parse"),
+        LINK_LOOKUP("link lookup"),
+        HANDSHAKE_HANDLERS("handshake handlers"),
+        SKIN_UPLOAD("skin upload"),
+        ADD_PLAYER("add player"),
+        TOTAL("total");
+
+        static final Stage[] VALUES = values();
+
+        private final String displayName;
+
+        Stage(String displayName) {
+            this.displayName = displayName;
+        }
+
+        public String displayName() {
+            return displayName;
+        }
+    }
+
+    /**
+     * The timings of a single login. Every call to {@link #lap(Stage)} adds the time since the
+     * previous lap to the duration of the given stage. A login waits in the queue of the handshake
+     * executor twice for example, both waits are part of the {@link Stage#QUEUE} duration.
+     */
+    public static final class Timings {
+        private final long start = System.nanoTime();
+        private final long[] durations = new long[Stage.VALUES.length];
+        private long lastLap = start;
+
+        private Timings() {
+            Arrays.fill(durations, -1);
+        }
+
+        public void lap(Stage stage) {
+            long now = System.nanoTime();
+            long current = durations[stage.ordinal()];
+            durations[stage.ordinal()] = (current != -1 ? current : 0) + now - lastLap;
+            lastLap = now;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder();
+            for (Stage stage : Stage.VALUES) {
+                long duration = durations[stage.ordinal()];
+                if (duration == -1) {
+                    continue;
+                }
+                if (builder.length() > 0) {
+                    builder.append(", ");
+                }
+                builder.append(stage.displayName()).append(": ").append(formatNanos(duration));
+            }
+            return builder.toString();
+        }
+    }
+}
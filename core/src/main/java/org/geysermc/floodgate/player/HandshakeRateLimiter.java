@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2019-2022 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/Floodgate
+ */
+
+package org.geysermc.floodgate.player;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Limits the amount of Floodgate handshakes a single address can start, before we spend any time
+ * on decrypting them. Every address is hashed into one of a fixed amount of stripes, and every
+ * stripe is a token bucket that is stored as a single long (the time at which the bucket is full
+ * again). Taking a token is a single compare-and-set, so there are no locks and no per-address
+ * allocations. Addresses that share a stripe also share their bucket, which is fine as long as
+ * there are a lot more stripes than addresses that are connecting at the same time.
+ */
+public final class HandshakeRateLimiter {
+    private static final int STRIPE_COUNT = 4096;
+
+    private final AtomicLongArray stripes = new AtomicLongArray(STRIPE_COUNT);
+    private final LongAdder droppedCount = new LongAdder();
+
+    private final boolean enabled;
+    private final long nanosPerToken;
+    private final long burstNanos;
+    // System.nanoTime can be negative, this makes sure that the empty stripes are in the past
+    private final long origin = System.nanoTime();
+
+    /**
+     * @param handshakesPerSecond the amount of handshakes an address can make per second, or 0 to
+     *                            disable the rate limiter
+     * @param burst               the amount of handshakes an address can make at once
+     */
+    public HandshakeRateLimiter(int handshakesPerSecond, int burst) {
+        this.enabled = handshakesPerSecond > 0;
+        this.nanosPerToken = enabled ? TimeUnit.SECONDS.toNanos(1) / handshakesPerSecond : 0;
+        this.burstNanos = nanosPerToken * Math.max(1, burst);
+    }
+
+    /**
+     * Tries to take a token from the bucket of the given address.
+     *
+     * @param address the remote address of the connection
+     * @return true if the handshake can continue, false if it should be rejected
+     */
+    public boolean tryAcquire(SocketAddress address) {
+        if (!enabled) {
+            return true;
+        }
+
+        int stripe = stripeOf(address);
+        long now = System.nanoTime() - origin;
+        while (true) {
+            long fullAt = stripes.get(stripe);
+            // a stripe that hasn't been used in a while is just a full bucket
+            long start = Math.max(fullAt, now);
+            long next = start + nanosPerToken;
+
+            if (next - now > burstNanos) {
+                droppedCount.increment();
+                return false;
+            }
+            if (stripes.compareAndSet(stripe, fullAt, next)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Returns the amount of handshakes that were rejected by the rate limiter.
+     */
+    public long droppedCount() {
+        return droppedCount.sum();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    private static int stripeOf(SocketAddress address) {
+        int hash;
+        if (address instanceof InetSocketAddress) {
+            InetAddress inetAddress = ((InetSocketAddress) address).getAddress();
+            hash = inetAddress != null
+                    ? inetAddress.hashCode()
+                    : ((InetSocketAddress) address).getHostString().hashCode();
+        } else {
+            hash = address != null ? address.hashCode() : 0;
+        }
+
+        // the hash of an IPv4 address is the address itself, so spread the bits a bit
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        return hash & (STRIPE_COUNT - 1);
+    }
+}
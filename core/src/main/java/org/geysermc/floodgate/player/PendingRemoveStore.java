@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) 2019-2022 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/Floodgate
+ */
+
+package org.geysermc.floodgate.player;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import org.geysermc.floodgate.api.player.FloodgatePlayer;
+
+/**
+ * Stores the players whose connection has been closed, but whose platform quit event hasn't
+ * been called yet. The players can be found by both their Floodgate UUID and their correct UUID,
+ * and are removed automatically once they have lingered for the configured amount of time.
+ * <p>
+ * Expiring works like a hashed wheel timer: every player is put in the bucket of the tick in
+ * which it expires, and {@link #expire()} only has to go through the buckets of the ticks that
+ * passed since the last call. This way a lot of players leaving at once (e.g. when a proxy
+ * restarts) doesn't result in having to go through all the pending players over and over again.
+ */
+public final class PendingRemoveStore {
+    private final Map<UUID, Entry> byJavaId = new ConcurrentHashMap<>();
+    private final Map<UUID, Entry> byCorrectId = new ConcurrentHashMap<>();
+
+    private final Queue<Entry>[] wheel;
+    private final long tickNanos;
+    private final long lingerNanos;
+    // System.nanoTime can be negative, this keeps the ticks positive
+    private final long origin = System.nanoTime();
+
+    // only used by the thread that calls expire
+    private long lastExpiredTick;
+    private ScheduledFuture<?> expireTask;
+
+    /**
+     * @param lingerTime the time a player stays in the store
+     * @param tickTime   the time between calls to {@link #expire()}. Players are removed at most
+     *                   this long after their linger time has passed
+     * @param unit       the unit of both times
+     */
+    @SuppressWarnings("unchecked")
+    public PendingRemoveStore(long lingerTime, long tickTime, TimeUnit unit) {
+        this.lingerNanos = unit.toNanos(lingerTime);
+        this.tickNanos = Math.max(1, unit.toNanos(tickTime));
+
+        // the wheel is big enough that a new player never ends up in the bucket that is expiring
+        int wheelSize = (int) (lingerNanos / tickNanos) + 2;
+        this.wheel = new Queue[wheelSize];
+        for (int i = 0; i < wheelSize; i++) {
+            wheel[i] = new ConcurrentLinkedQueue<>();
+        }
+        this.lastExpiredTick = tickOf(0);
+    }
+
+    /**
+     * Calls {@link #expire()} every tick on the given pool, until {@link #stop()} is called.
+     *
+     * @param scheduledPool the pool to run the expire task on
+     */
+    public void start(ScheduledExecutorService scheduledPool) {
+        if (expireTask == null) {
+            expireTask = scheduledPool.scheduleAtFixedRate(
+                    this::expire, tickNanos, tickNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Cancels the expire task that was started by {@link #start(ScheduledExecutorService)}.
+     */
+    public void stop() {
+        if (expireTask != null) {
+            expireTask.cancel(false);
+        }
+    }
+
+    public void put(FloodgatePlayer player) {
+        long deadline = now() + lingerNanos;
+        Entry entry = new Entry(player, deadline);
+
+        // Bedrock players are always stored by their xuid
+        byJavaId.put(player.getJavaUniqueId(), entry);
+        byCorrectId.put(player.getCorrectUniqueId(), entry);
+        // the deadline is rounded up, so that players are never removed too early
+        wheel[bucketOf(tickOf(deadline) + 1)].add(entry);
+    }
+
+    public FloodgatePlayer getByJavaId(UUID javaUniqueId) {
+        return playerOf(byJavaId.get(javaUniqueId));
+    }
+
+    public FloodgatePlayer getByCorrectId(UUID correctUniqueId) {
+        return playerOf(byCorrectId.get(correctUniqueId));
+    }
+
+    public void removeByJavaId(UUID javaUniqueId) {
+        Entry entry = byJavaId.remove(javaUniqueId);
+        if (entry != null) {
+            byCorrectId.remove(entry.player.getCorrectUniqueId(), entry);
+        }
+    }
+
+    public void removeByCorrectId(UUID correctUniqueId) {
+        Entry entry = byCorrectId.remove(correctUniqueId);
+        if (entry != null) {
+            byJavaId.remove(entry.player.getJavaUniqueId(), entry);
+        }
+    }
+
+    /**
+     * Removes the players whose linger time has passed. This method should be called every tick
+     * by a single thread.
+     */
+    public void expire() {
+        long now = now();
+        long currentTick = tickOf(now);
+
+        List<Entry> notExpired = new ArrayList<>();
+        for (long tick = lastExpiredTick + 1; tick <= currentTick; tick++) {
+            Queue<Entry> bucket = wheel[bucketOf(tick)];
+
+            Entry entry;
+            while ((entry = bucket.poll()) != null) {
+                if (entry.deadline - now > 0) {
+                    notExpired.add(entry);
+                    continue;
+                }
+                // the player might have been removed or added again in the meantime
+                byJavaId.remove(entry.player.getJavaUniqueId(), entry);
+                byCorrectId.remove(entry.player.getCorrectUniqueId(), entry);
+            }
+
+            if (!notExpired.isEmpty()) {
+                bucket.addAll(notExpired);
+                notExpired.clear();
+            }
+        }
+        lastExpiredTick = currentTick;
+    }
+
+    public int size() {
+        return byJavaId.size();
+    }
+
+    private FloodgatePlayer playerOf(Entry entry) {
+        // expire might not have been called yet
+        if (entry == null || entry.deadline - now() <= 0) {
+            return null;
+        }
+        return entry.player;
+    }
+
+    private long now() {
+        return System.nanoTime() - origin;
+    }
+
+    private long tickOf(long time) {
+        return time / tickNanos;
+    }
+
+    private int bucketOf(long tick) {
+        return (int) (tick % wheel.length);
+    }
+
+    private static final class Entry {
+        private final FloodgatePlayer player;
+        private final long deadline;
+
+        private Entry(FloodgatePlayer player, long deadline) {
+            this.player = player;
+            this.deadline = deadline;
+        }
+    }
+}
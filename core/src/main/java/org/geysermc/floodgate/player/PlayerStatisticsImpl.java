@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) 2019-2022 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/Floodgate
+ */
+
+package org.geysermc.floodgate.player;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import org.geysermc.floodgate.api.player.FloodgatePlayer;
+import org.geysermc.floodgate.api.player.PlayerStatistics;
+import org.geysermc.floodgate.util.DeviceOs;
+import org.geysermc.floodgate.util.InputMode;
+import org.geysermc.floodgate.util.UiProfile;
+
+public final class PlayerStatisticsImpl implements PlayerStatistics {
+    private static final DeviceOs[] DEVICE_OS_VALUES = DeviceOs.values();
+    private static final InputMode[] INPUT_MODE_VALUES = InputMode.values();
+    private static final UiProfile[] UI_PROFILE_VALUES = UiProfile.values();
+
+    private final LongAdder[] deviceOs = createCounters(DEVICE_OS_VALUES.length);
+    private final LongAdder[] inputMode = createCounters(INPUT_MODE_VALUES.length);
+    private final LongAdder[] uiProfile = createCounters(UI_PROFILE_VALUES.length);
+    // there are only a handful of versions and languages online at the same time,
+    // so we don't bother removing the counters that dropped to zero
+    private final Map<String, LongAdder> version = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> language = new ConcurrentHashMap<>();
+
+    public void playerAdded(FloodgatePlayer player) {
+        update(player, 1);
+    }
+
+    public void playerRemoved(FloodgatePlayer player) {
+        update(player, -1);
+    }
+
+    private void update(FloodgatePlayer player, int amount) {
+        if (player.getDeviceOs() != null) {
+            deviceOs[player.getDeviceOs().ordinal()].add(amount);
+        }
+        if (player.getInputMode() != null) {
+            inputMode[player.getInputMode().ordinal()].add(amount);
+        }
+        if (player.getUiProfile() != null) {
+            uiProfile[player.getUiProfile().ordinal()].add(amount);
+        }
+        if (player.getVersion() != null) {
+            counterOf(version, player.getVersion()).add(amount);
+        }
+        if (player.getLanguageCode() != null) {
+            counterOf(language, player.getLanguageCode()).add(amount);
+        }
+    }
+
+    @Override
+    public long getDeviceOsCount(DeviceOs deviceOs) {
+        return this.deviceOs[deviceOs.ordinal()].sum();
+    }
+
+    @Override
+    public long getInputModeCount(InputMode inputMode) {
+        return this.inputMode[inputMode.ordinal()].sum();
+    }
+
+    @Override
+    public long getUiProfileCount(UiProfile uiProfile) {
+        return this.uiProfile[uiProfile.ordinal()].sum();
+    }
+
+    @Override
+    public long getVersionCount(String version) {
+        return sumOf(this.version.get(version));
+    }
+
+    @Override
+    public long getLanguageCount(String languageCode) {
+        return sumOf(language.get(languageCode));
+    }
+
+    @Override
+    public Map<DeviceOs, Long> getDeviceOsCounts() {
+        return countsOf(deviceOs, DEVICE_OS_VALUES, new EnumMap<>(DeviceOs.class));
+    }
+
+    @Override
+    public Map<InputMode, Long> getInputModeCounts() {
+        return countsOf(inputMode, INPUT_MODE_VALUES, new EnumMap<>(InputMode.class));
+    }
+
+    @Override
+    public Map<UiProfile, Long> getUiProfileCounts() {
+        return countsOf(uiProfile, UI_PROFILE_VALUES, new EnumMap<>(UiProfile.class));
+    }
+
+    @Override
+    public Map<String, Long> getVersionCounts() {
+        return countsOf(version);
+    }
+
+    @Override
+    public Map<String, Long> getLanguageCounts() {
+        return countsOf(language);
+    }
+
+    private static LongAdder[] createCounters(int size) {
+        LongAdder[] counters = new LongAdder[size];
+        for (int i = 0; i < size; i++) {
+            counters[i] = new LongAdder();
+        }
+        return counters;
+    }
+
+    private static LongAdder counterOf(Map<String, LongAdder> counters, String key) {
+        // Java 8's computeIfAbsent locks even if the key is present
+        LongAdder counter = counters.get(key);
+        if (counter == null) {
+            counter = counters.computeIfAbsent(key, $ -> new LongAdder());
+        }
+        return counter;
+    }
+
+    private static long sumOf(LongAdder counter) {
+        return counter != null ? counter.sum() : 0;
+    }
+
+    private static <T extends Enum<T>> Map<T, Long> countsOf(
+            LongAdder[] counters,
+            T[] values,
+            Map<T, Long> result) {
+
+        for (int i = 0; i < counters.length; i++) {
+            long count = counters[i].sum();
+            if (count > 0) {
+                result.put(values[i], count);
+            }
+        }
+        return Collections.unmodifiableMap(result);
+    }
+
+    private static Map<String, Long> countsOf(Map<String, LongAdder> counters) {
+        Map<String, Long> result = new HashMap<>();
+        counters.forEach((key, counter) -> {
+            long count = counter.sum();
+            if (count > 0) {
+                result.put(key, count);
+            }
+        });
+        return Collections.unmodifiableMap(result);
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2019-2022 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/Floodgate
+ */
+
+package org.geysermc.floodgate.player;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.geysermc.floodgate.api.player.PropertyKey;
+
+/**
+ * The property keys that Floodgate itself uses. Every key has a fixed slot, so that
+ * {@link FloodgatePlayerImpl} can store their values in an array instead of in a map.
+ * Property keys that aren't listed here are stored in a map instead.
+ */
+public final class PropertySlots {
+    public static final PropertyKey LAST_FORM_ID =
+            new SlottedPropertyKey("floodgate:last_form_id", true, false, 2);
+    public static final PropertyKey ACTIVE_FORMS =
+            new SlottedPropertyKey("floodgate:active_forms", true, true, 3);
+
+    private static final PropertyKey[] KEYS = {
+            PropertyKey.SOCKET_ADDRESS,
+            PropertyKey.SKIN_UPLOADED,
+            LAST_FORM_ID,
+            ACTIVE_FORMS
+    };
+    private static final Map<String, Integer> SLOT_BY_NAME = new HashMap<>();
+
+    static final int SLOT_COUNT = KEYS.length;
+
+    static {
+        for (int i = 0; i < KEYS.length; i++) {
+            SLOT_BY_NAME.put(KEYS[i].getKey(), i);
+        }
+    }
+
+    private PropertySlots() {
+    }
+
+    /**
+     * Returns the slot of the given key, or -1 if the key doesn't have a slot.
+     */
+    static int slotOf(PropertyKey key) {
+        if (key instanceof SlottedPropertyKey) {
+            return ((SlottedPropertyKey) key).slot;
+        }
+        if (key == PropertyKey.SOCKET_ADDRESS) {
+            return 0;
+        }
+        if (key == PropertyKey.SKIN_UPLOADED) {
+            return 1;
+        }
+        // a plugin can make its own instance of one of our keys
+        return key != null ? slotOf(key.getKey()) : -1;
+    }
+
+    /**
+     * Returns the slot of the key with the given name, or -1 if the key doesn't have a slot.
+     */
+    static int slotOf(String key) {
+        Integer slot = SLOT_BY_NAME.get(key);
+        return slot != null ? slot : -1;
+    }
+
+    static PropertyKey keyOf(int slot) {
+        return KEYS[slot];
+    }
+
+    private static final class SlottedPropertyKey extends PropertyKey {
+        private final int slot;
+
+        private SlottedPropertyKey(String key, boolean changeable, boolean removable, int slot) {
+            super(key, changeable, removable);
+            this.slot = slot;
+        }
+    }
+}
@@ -25,32 +25,113 @@
 
 package org.geysermc.floodgate.pluginmessage.channel;
 
+import static org.geysermc.floodgate.util.LatencyRecorder.formatNanos;
+
 import com.google.common.base.Charsets;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.inject.Inject;
-import java.util.Map;
+import com.google.inject.name.Named;
+import it.unimi.dsi.fastutil.shorts.Short2ObjectLinkedOpenHashMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 import org.geysermc.cumulus.form.Form;
 import org.geysermc.cumulus.form.impl.FormDefinition;
 import org.geysermc.cumulus.form.impl.FormDefinitions;
+import org.geysermc.event.Listener;
+import org.geysermc.event.subscribe.Subscribe;
 import org.geysermc.floodgate.api.logger.FloodgateLogger;
 import org.geysermc.floodgate.api.player.FloodgatePlayer;
-import org.geysermc.floodgate.api.player.PropertyKey;
 import org.geysermc.floodgate.config.FloodgateConfig;
+import org.geysermc.floodgate.event.lifecycle.ShutdownEvent;
 import org.geysermc.floodgate.platform.pluginmessage.PluginMessageUtils;
+import org.geysermc.floodgate.platform.util.PlatformUtils;
 import org.geysermc.floodgate.player.FloodgatePlayerImpl;
+import org.geysermc.floodgate.player.PropertySlots;
 import org.geysermc.floodgate.pluginmessage.PluginMessageChannel;
+import org.geysermc.floodgate.util.LatencyRecorder;
 
+@Listener
 public class FormChannel implements PluginMessageChannel {
-    private static final PropertyKey PROPERTY_LAST_FORM_ID = new PropertyKey("floodgate:last_form_id", true, false);
-    private static final PropertyKey PROPERTY_ACTIVE_FORMS = new PropertyKey("floodgate:active_forms", true, true);
-
     private final FormDefinitions formDefinitions = FormDefinitions.instance();
+    // the open forms of every player that had forms open during the last expiry check
+    private final Set<ActiveForms> activeForms = ConcurrentHashMap.newKeySet();
+    private final LongAdder openFormCount = new LongAdder();
+    // the serialized forms by form instance (weak keys are compared by identity), can be null
+    private Cache<Form, byte[]> serializedForms;
+
+    // the time between receiving a response and handling it, and the time handling it took
+    private final LatencyRecorder responseQueueTime = new LatencyRecorder();
+    private final LatencyRecorder responseHandleTime = new LatencyRecorder();
+    private ResponseThread responseThread;
+    private ExecutorService responseExecutor;
+    private long slowResponseThreshold;
 
     @Inject private PluginMessageUtils pluginMessageUtils;
+    @Inject private PlatformUtils platformUtils;
     @Inject private FloodgateConfig config;
     @Inject private FloodgateLogger logger;
 
+    @Inject
+    @Named("commonScheduledPool")
+    private ScheduledExecutorService scheduledPool;
+
+    @Inject
+    private void init() {
+        FloodgateConfig.FormsConfig formsConfig = config.getForms();
+        if (formsConfig.getExpireTime() > 0) {
+            scheduledPool.scheduleAtFixedRate(this::expireForms, 30, 30, TimeUnit.SECONDS);
+        }
+        if (formsConfig.getSerializedCacheSize() > 0) {
+            serializedForms = CacheBuilder.newBuilder()
+                    .weakKeys()
+                    .maximumSize(formsConfig.getSerializedCacheSize())
+                    .build();
+        }
+
+        try {
+            responseThread = ResponseThread.valueOf(
+                    formsConfig.getResponseThread().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException exception) {
+            logger.warn("Unknown form response thread '{}', using 'direct' instead",
+                    formsConfig.getResponseThread());
+            responseThread = ResponseThread.DIRECT;
+        }
+
+        // the main thread falls back to our own threads on platforms that don't have one
+        if (responseThread != ResponseThread.DIRECT) {
+            responseExecutor = Executors.newFixedThreadPool(
+                    Math.max(1, formsConfig.getResponseThreadCount()),
+                    new ThreadFactoryBuilder()
+                            .setNameFormat("floodgate-form-response-%d")
+                            .setDaemon(true)
+                            .build()
+            );
+        }
+        slowResponseThreshold =
+                TimeUnit.MILLISECONDS.toNanos(formsConfig.getSlowResponseThreshold());
+    }
+
+    @Subscribe
+    public void onShutdown(ShutdownEvent ignored) {
+        if (responseExecutor != null) {
+            responseExecutor.shutdown();
+        }
+    }
+
     @Override
     public String getIdentifier() {
         return "floodgate:form";
@@ -101,33 +182,111 @@ public class FormChannel implements PluginMessageChannel {
     }
 
     private void closeForms0(FloodgatePlayer player) {
-        Map<Short, Form> forms = player.removeProperty(PROPERTY_ACTIVE_FORMS);
-        if (forms != null && !forms.isEmpty()) {
-            for (Form form : forms.values()) {
-                try {
-                    formDefinitions.definitionFor(form).handleFormResponse(form, "");
-                } catch (Exception e) {
-                    logger.error("Error while closing form!", e);
-                }
-            }
+        ActiveForms forms = player.removeProperty(PropertySlots.ACTIVE_FORMS);
+        if (forms != null) {
+            activeForms.remove(forms);
+            handleClosed(player, forms.removeAll());
         }
     }
 
+    private void handleClosed(FloodgatePlayer player, List<Form> forms) {
+        openFormCount.add(-forms.size());
+        long closedAt = System.nanoTime();
+        for (Form form : forms) {
+            // an empty response means that the form has been closed
+            dispatchResponse(player, () -> handleResponse(form, "", closedAt));
+        }
+    }
+
+    /**
+     * Returns the amount of forms the given player hasn't responded to yet.
+     */
+    public int getOpenFormCount(FloodgatePlayer player) {
+        ActiveForms forms = player.getProperty(PropertySlots.ACTIVE_FORMS);
+        return forms != null ? forms.size() : 0;
+    }
+
+    /**
+     * Returns the amount of forms all the players together haven't responded to yet.
+     */
+    public long getOpenFormCount() {
+        return openFormCount.sum();
+    }
+
     public boolean sendForm(FloodgatePlayer player, Form form) {
         byte[] formData = createFormData(player, form);
         return pluginMessageUtils.sendMessage(player.getCorrectUniqueId(), getIdentifier(), formData);
     }
 
+    /**
+     * Sends the same form to all the given players. The form is only serialized once, every
+     * player gets a copy of the serialized form with their own form id.
+     * The form instance, and with that its result handler, is shared by all the players. See
+     * {@link org.geysermc.floodgate.api.FloodgateApi#sendForm(Collection, Form)}.
+     *
+     * @return true if the form has been sent to all the players
+     */
+    public boolean sendForm(Collection<FloodgatePlayer> players, Form form) {
+        byte[] template = serializeForm(form);
+
+        boolean success = true;
+        for (FloodgatePlayer player : players) {
+            byte[] formData = createFormData(player, form, template);
+            success &= pluginMessageUtils.sendMessage(
+                    player.getCorrectUniqueId(), getIdentifier(), formData);
+        }
+        return success;
+    }
+
     public byte[] createFormData(FloodgatePlayer player, Form form) {
+        return createFormData(player, form, serializeForm(form));
+    }
+
+    private byte[] createFormData(FloodgatePlayer player, Form form, byte[] template) {
         short formId = getNextFormId(player);
         if (config.isProxy()) {
             formId |= (short) 0x8000;
         }
 
-        ((FloodgatePlayerImpl) player)
-                .getOrAddProperty(PROPERTY_ACTIVE_FORMS, ConcurrentHashMap::new)
-                .put(formId, form);
+        ActiveForms forms = ((FloodgatePlayerImpl) player)
+                .getOrAddProperty(PropertySlots.ACTIVE_FORMS, () -> new ActiveForms(player));
+
+        long now = System.nanoTime();
+        expireForms(forms, now);
+
+        Form replaced = forms.add(formId, form, now, config.getForms().getMaxOpenForms());
+        activeForms.add(forms);
+        if (replaced == null) {
+            openFormCount.increment();
+        } else {
+            // the amount of open forms stays the same, the replaced form is seen as closed
+            dispatchResponse(player, () -> handleResponse(replaced, "", now));
+        }
+
+        byte[] data = template.clone();
+        data[1] = (byte) (formId >> 8 & 0xFF);
+        data[2] = (byte) (formId & 0xFF);
+        return data;
+    }
+
+    /**
+     * Returns the form data without the form id. The returned array should not be modified,
+     * because it can be shared with other sends of the same form.
+     */
+    private byte[] serializeForm(Form form) {
+        if (serializedForms == null) {
+            return serializeForm0(form);
+        }
+
+        byte[] template = serializedForms.getIfPresent(form);
+        if (template == null) {
+            template = serializeForm0(form);
+            serializedForms.put(form, template);
+        }
+        return template;
+    }
 
+    private byte[] serializeForm0(Form form) {
         FormDefinition<Form, ?, ?> definition = formDefinitions.definitionFor(form);
 
         byte[] jsonData =
@@ -135,10 +294,9 @@ public class FormChannel implements PluginMessageChannel {
                         .jsonData(form)
                         .getBytes(Charsets.UTF_8);
 
+        // the form id (the second and third byte) is set for every player
         byte[] data = new byte[jsonData.length + 3];
         data[0] = (byte) definition.formType().ordinal();
-        data[1] = (byte) (formId >> 8 & 0xFF);
-        data[2] = (byte) (formId & 0xFF);
         System.arraycopy(jsonData, 0, data, 3, jsonData.length);
         return data;
     }
@@ -146,39 +304,187 @@ public class FormChannel implements PluginMessageChannel {
     protected boolean callResponseConsumer(FloodgatePlayer player, byte[] data) {
         short formId = getFormId(data);
 
-        Map<Short, Form> forms = player.getProperty(PROPERTY_ACTIVE_FORMS);
+        ActiveForms forms = player.getProperty(PropertySlots.ACTIVE_FORMS);
         if (forms == null) {
             return false;
         }
 
         Form storedForm = forms.remove(formId);
         if (storedForm != null) {
+            openFormCount.decrement();
             String responseData = new String(data, 2, data.length - 2, Charsets.UTF_8);
-            try {
-                formDefinitions.definitionFor(storedForm)
-                        .handleFormResponse(storedForm, responseData);
-            } catch (Exception e) {
-                logger.error("Error while processing form response!", e);
-            }
+            long receivedAt = System.nanoTime();
+            dispatchResponse(player, () -> handleResponse(storedForm, responseData, receivedAt));
             return true;
         }
         return false;
     }
 
+    private void dispatchResponse(FloodgatePlayer player, Runnable task) {
+        switch (responseThread) {
+            case MAIN:
+                if (platformUtils.runOnPlayerThread(player.getCorrectUniqueId(), task)) {
+                    return;
+                }
+                // fall through, there is no main thread on this platform
+            case ASYNC:
+                try {
+                    responseExecutor.execute(task);
+                    return;
+                } catch (RejectedExecutionException ignored) {
+                    // we're shutting down, handle it right away instead
+                }
+                // fall through
+            default:
+                task.run();
+        }
+    }
+
+    private void handleResponse(Form form, String responseData, long receivedAt) {
+        long start = System.nanoTime();
+        responseQueueTime.record(start - receivedAt);
+
+        try {
+            formDefinitions.definitionFor(form).handleFormResponse(form, responseData);
+        } catch (Exception e) {
+            logger.error("Error while processing form response!", e);
+        }
+
+        long duration = System.nanoTime() - start;
+        responseHandleTime.record(duration);
+        if (slowResponseThreshold > 0 && duration >= slowResponseThreshold) {
+            logger.warn("Handling the response of a {} titled '{}' took {}",
+                    form.getClass().getSimpleName(), form.title(), formatNanos(duration));
+        }
+    }
+
+    /**
+     * Returns the time between receiving form responses and handing them to the form.
+     */
+    public LatencyRecorder getResponseQueueTime() {
+        return responseQueueTime;
+    }
+
+    /**
+     * Returns the time it took the forms (and thus the plugins) to handle responses.
+     */
+    public LatencyRecorder getResponseHandleTime() {
+        return responseHandleTime;
+    }
+
     public void disconnect(FloodgatePlayer player) {
         closeForms0(player);
     }
 
+    private void expireForms() {
+        long now = System.nanoTime();
+        for (ActiveForms forms : activeForms) {
+            expireForms(forms, now);
+            // forms that are added after this are expired when the next form is created
+            if (forms.size() == 0) {
+                activeForms.remove(forms);
+            }
+        }
+    }
+
+    private void expireForms(ActiveForms forms, long now) {
+        long expireTime = config.getForms().getExpireTime();
+        if (expireTime > 0) {
+            long openedBefore = now - TimeUnit.SECONDS.toNanos(expireTime);
+            List<Form> expired = forms.removeOpenedBefore(openedBefore);
+            if (!expired.isEmpty()) {
+                handleClosed(forms.player, expired);
+            }
+        }
+    }
+
     private short getFormId(byte[] data) {
         return (short) ((data[0] & 0xFF) << 8 | data[1] & 0xFF);
     }
 
     private short getNextFormId(FloodgatePlayer player) {
-        AtomicInteger nextFormId =
-                ((FloodgatePlayerImpl) player).getOrAddProperty(PROPERTY_LAST_FORM_ID, AtomicInteger::new);
+        AtomicInteger nextFormId = ((FloodgatePlayerImpl) player)
+                .getOrAddProperty(PropertySlots.LAST_FORM_ID, AtomicInteger::new);
 
         // signed bit is used to check if the form is from a proxy or a server
         return (short) nextFormId.getAndUpdate(
                 (number) -> number == Short.MAX_VALUE ? 0 : number + 1);
     }
+
+    /**
+     * The forms a player hasn't responded to yet, in the order they were sent.
+     */
+    private static final class ActiveForms {
+        private final Short2ObjectLinkedOpenHashMap<OpenForm> forms =
+                new Short2ObjectLinkedOpenHashMap<>();
+        // expired forms are closed on the thread of the player they belong to
+        private final FloodgatePlayer player;
+
+        ActiveForms(FloodgatePlayer player) {
+            this.player = player;
+        }
+
+        /**
+         * Adds the form and returns the form it replaced: the form that still had the same form id
+         * (after the form ids wrapped around), or otherwise the oldest form if the player has too
+         * many forms open.
+         */
+        synchronized Form add(short formId, Form form, long openedAt, int maxOpenForms) {
+            // the newest form should be last, also when it replaces a form
+            OpenForm previous = forms.putAndMoveToLast(formId, new OpenForm(form, openedAt));
+            if (previous != null) {
+                return previous.form;
+            }
+            if (maxOpenForms > 0 && forms.size() > maxOpenForms) {
+                return forms.removeFirst().form;
+            }
+            return null;
+        }
+
+        synchronized Form remove(short formId) {
+            OpenForm openForm = forms.remove(formId);
+            return openForm != null ? openForm.form : null;
+        }
+
+        synchronized List<Form> removeOpenedBefore(long time) {
+            List<Form> removed = Collections.emptyList();
+            // the oldest form is always the first form
+            while (!forms.isEmpty() && forms.get(forms.firstShortKey()).openedAt - time < 0) {
+                if (removed.isEmpty()) {
+                    removed = new ArrayList<>();
+                }
+                removed.add(forms.removeFirst().form);
+            }
+            return removed;
+        }
+
+        synchronized List<Form> removeAll() {
+            List<Form> removed = new ArrayList<>(forms.size());
+            for (OpenForm openForm : forms.values()) {
+                removed.add(openForm.form);
+            }
+            forms.clear();
+            return removed;
+        }
+
+        synchronized int size() {
+            return forms.size();
+        }
+    }
+
+    private static final class OpenForm {
+        private final Form form;
+        private final long openedAt;
+
+        private OpenForm(Form form, long openedAt) {
+            this.form = form;
+            this.openedAt = openedAt;
+        }
+    }
+
+    private enum ResponseThread {
+        DIRECT,
+        ASYNC,
+        MAIN
+    }
 }
@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2019-2022 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/Floodgate
+ */
+
+package org.geysermc.floodgate.util;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Keeps the latest {@link #SAMPLE_COUNT} durations of something to calculate their percentiles.
+ * Recording a duration doesn't lock or allocate anything.
+ */
+public final class LatencyRecorder {
+    public static final int SAMPLE_COUNT = 1024;
+
+    private final AtomicLongArray samples = new AtomicLongArray(SAMPLE_COUNT);
+    private final AtomicLong sampleCount = new AtomicLong();
+
+    public void record(long durationNanos) {
+        long index = sampleCount.getAndIncrement();
+        samples.set((int) (index % SAMPLE_COUNT), durationNanos);
+    }
+
+    /**
+     * Returns the total amount of recorded durations, including the ones that are no longer part
+     * of the samples.
+     */
+    public long count() {
+        return sampleCount.get();
+    }
+
+    /**
+     * Returns the percentiles (p50, p95, p99 and max) of the samples in nanoseconds, or null if
+     * nothing has been recorded yet.
+     */
+    public long[] percentiles() {
+        int count = (int) Math.min(sampleCount.get(), SAMPLE_COUNT);
+        if (count == 0) {
+            return null;
+        }
+
+        long[] sorted = new long[count];
+        for (int i = 0; i < count; i++) {
+            sorted[i] = samples.get(i);
+        }
+        Arrays.sort(sorted);
+
+        return new long[]{
+                sorted[percentileIndex(count, 50)],
+                sorted[percentileIndex(count, 95)],
+                sorted[percentileIndex(count, 99)],
+                sorted[count - 1]
+        };
+    }
+
+    public static String formatNanos(long nanos) {
+        return String.format(Locale.ROOT, "%.2fms", nanos / 1_000_000d);
+    }
+
+    private static int percentileIndex(int count, int percentile) {
+        return Math.max(0, (int) Math.ceil(count * percentile / 100d) - 1);
+    }
+}
@@ -40,6 +40,8 @@ import java.util.Properties;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
@@ -123,6 +125,25 @@ public class Utils {
         return future;
     }
 
+    /**
+     * Returns a ThreadFactory that creates daemon threads, so that they don't keep the server
+     * running when Floodgate isn't able to shut them down. This can be used where Guava's
+     * ThreadFactoryBuilder can't, like in the database implementations (Guava is relocated on some
+     * platforms).
+     *
+     * @param nameFormat the name of the threads, where %d is replaced with the thread number
+     * @return the created ThreadFactory
+     */
+    public static ThreadFactory daemonThreadFactory(String nameFormat) {
+        AtomicInteger threadId = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(
+                    runnable, String.format(nameFormat, threadId.getAndIncrement()));
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
     /**
      * Returns a set of all the classes that are annotated by a given annotation.
      * Keep in mind that these are from a set of generated annotations generated
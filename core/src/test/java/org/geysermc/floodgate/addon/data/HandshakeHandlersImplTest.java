@@ -0,0 +1,194 @@
+/*
+ * Copyright (c) 2019-2022 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/Floodgate
+ */
+
+package org.geysermc.floodgate.addon.data;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import org.geysermc.floodgate.api.handshake.AsyncHandshakeHandler;
+import org.geysermc.floodgate.api.handshake.HandshakeData;
+import org.geysermc.floodgate.api.handshake.HandshakeHandler;
+import org.junit.jupiter.api.Test;
+
+@SuppressWarnings("deprecation")
+class HandshakeHandlersImplTest {
+    private static final Executor DIRECT = Runnable::run;
+
+    private final HandshakeHandlersImpl handlers = new HandshakeHandlersImpl();
+    private final List<String> calls = Collections.synchronizedList(new ArrayList<>());
+
+    @Test
+    void lowerPriorityIsCalledFirst() {
+        handlers.addHandshakeHandler(new RecordingHandler("late", 10));
+        handlers.addHandshakeHandler(new RecordingHandler("early", -10));
+        handlers.addHandshakeHandler(new RecordingHandler("default", 0));
+
+        handlers.callHandshakeHandlersAsync(null, DIRECT).join();
+
+        assertEquals(Arrays.asList("early", "default", "late"), calls);
+    }
+
+    @Test
+    void samePriorityIsCalledInRegistrationOrder() {
+        handlers.addHandshakeHandler(new RecordingHandler("first", 0));
+        handlers.addHandshakeHandler(new RecordingHandler("second", 0));
+        handlers.addHandshakeHandler(new RecordingHandler("before", -1));
+        handlers.addHandshakeHandler(new RecordingHandler("third", 0));
+
+        handlers.callHandshakeHandlersAsync(null, DIRECT).join();
+
+        assertEquals(Arrays.asList("before", "first", "second", "third"), calls);
+    }
+
+    @Test
+    void removeById() {
+        handlers.addHandshakeHandler(new RecordingHandler("kept", 0));
+        int id = handlers.addHandshakeHandler(new RecordingHandler("removed", 0));
+        assertTrue(id > 0);
+
+        handlers.removeHandshakeHandler(id);
+        handlers.callHandshakeHandlersAsync(null, DIRECT).join();
+
+        assertEquals(Collections.singletonList("kept"), calls);
+    }
+
+    @Test
+    void removeByClass() {
+        handlers.addHandshakeHandler(new RecordingHandler("removed", 0));
+        handlers.addHandshakeHandler(new RecordingHandler("removed too", 5));
+        handlers.addHandshakeHandler(data -> calls.add("kept"));
+
+        handlers.removeHandshakeHandler(RecordingHandler.class);
+        handlers.callHandshakeHandlersAsync(null, DIRECT).join();
+
+        assertEquals(Collections.singletonList("kept"), calls);
+    }
+
+    @Test
+    void nullHandlerIsIgnored() {
+        assertEquals(-1, handlers.addHandshakeHandler(null));
+        assertTrue(handlers.callHandshakeHandlersAsync(null, DIRECT).isDone());
+    }
+
+    @Test
+    void nextPriorityWaitsForAsyncHandlers() {
+        CompletableFuture<Void> first = new CompletableFuture<>();
+        CompletableFuture<Void> second = new CompletableFuture<>();
+        handlers.addHandshakeHandler(new DelayedHandler("first", first));
+        handlers.addHandshakeHandler(new DelayedHandler("second", second));
+        handlers.addHandshakeHandler(new RecordingHandler("after", 1));
+
+        CompletableFuture<Void> result = handlers.callHandshakeHandlersAsync(null, DIRECT);
+
+        // async handlers with the same priority are called at the same time
+        assertEquals(Arrays.asList("first", "second"), calls);
+        assertFalse(result.isDone());
+
+        first.complete(null);
+        assertEquals(Arrays.asList("first", "second"), calls);
+        assertFalse(result.isDone());
+
+        second.complete(null);
+        assertEquals(Arrays.asList("first", "second", "after"), calls);
+        assertTrue(result.isDone());
+    }
+
+    @Test
+    void handlersAfterAsyncHandlerRunOnTheExecutor() {
+        CompletableFuture<Void> async = new CompletableFuture<>();
+        Executor executor = task -> {
+            calls.add("executor");
+            task.run();
+        };
+        handlers.addHandshakeHandler(new RecordingHandler("before", -1));
+        handlers.addHandshakeHandler(new DelayedHandler("async", async));
+        handlers.addHandshakeHandler(new RecordingHandler("after", 1));
+
+        CompletableFuture<Void> result = handlers.callHandshakeHandlersAsync(null, executor);
+        assertEquals(Arrays.asList("before", "async"), calls);
+
+        async.complete(null);
+        assertEquals(Arrays.asList("before", "async", "executor", "after"), calls);
+        assertTrue(result.isDone());
+    }
+
+    @Test
+    void failedAsyncHandlerFailsTheResult() {
+        CompletableFuture<Void> failing = new CompletableFuture<>();
+        handlers.addHandshakeHandler(new DelayedHandler("failing", failing));
+        handlers.addHandshakeHandler(new RecordingHandler("after", 1));
+
+        CompletableFuture<Void> result = handlers.callHandshakeHandlersAsync(null, DIRECT);
+        failing.completeExceptionally(new IllegalStateException());
+
+        assertTrue(result.isCompletedExceptionally());
+        assertEquals(Collections.singletonList("failing"), calls);
+    }
+
+    private final class RecordingHandler implements HandshakeHandler {
+        private final String name;
+        private final int priority;
+
+        private RecordingHandler(String name, int priority) {
+            this.name = name;
+            this.priority = priority;
+        }
+
+        @Override
+        public void handle(HandshakeData data) {
+            calls.add(name);
+        }
+
+        @Override
+        public int getPriority() {
+            return priority;
+        }
+    }
+
+    private final class DelayedHandler implements AsyncHandshakeHandler {
+        private final String name;
+        private final CompletableFuture<Void> future;
+
+        private DelayedHandler(String name, CompletableFuture<Void> future) {
+            this.name = name;
+            this.future = future;
+        }
+
+        @Override
+        public CompletionStage<Void> handleAsync(HandshakeData data) {
+            calls.add(name);
+            return future;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2019-2022 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/Floodgate
+ */
+
+package org.geysermc.floodgate.addon.data;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.jupiter.api.Test;
+
+class PacketBlockerTest {
+    private final PacketBlocker blocker = new PacketBlocker();
+    private final EmbeddedChannel channel = new EmbeddedChannel(blocker);
+
+    @Test
+    void packetsPassWhileDisabled() {
+        channel.writeInbound("packet");
+
+        assertEquals("packet", channel.readInbound());
+    }
+
+    @Test
+    void blockedPacketsAreReleasedInOrder() {
+        blocker.enable(2);
+        channel.writeInbound("first", "second");
+        assertNull(channel.readInbound());
+
+        blocker.disable();
+
+        assertEquals("first", channel.readInbound());
+        assertEquals("second", channel.readInbound());
+        assertNull(channel.pipeline().get(PacketBlocker.class));
+    }
+
+    @Test
+    void connectionIsClosedWhenTooManyPacketsAreBlocked() {
+        blocker.enable(2);
+        channel.writeInbound("first", "second");
+        assertTrue(channel.isOpen());
+
+        ByteBuf tooMany = Unpooled.buffer().writeByte(1);
+        channel.writeInbound(tooMany);
+
+        assertFalse(channel.isOpen());
+        // the packet that didn't fit is released, instead of being queued
+        assertEquals(0, tooMany.refCnt());
+    }
+
+    @Test
+    void withoutLimitEveryPacketIsBlocked() {
+        blocker.enable();
+        for (int i = 0; i < 100; i++) {
+            channel.writeInbound(i);
+        }
+        assertTrue(channel.isOpen());
+
+        blocker.disable();
+
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, channel.<Integer>readInbound());
+        }
+    }
+}
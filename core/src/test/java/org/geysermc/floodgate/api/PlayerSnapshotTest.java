@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2019-2022 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/Floodgate
+ */
+
+package org.geysermc.floodgate.api;
+
+import static org.geysermc.floodgate.util.TestPlayers.player;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import org.geysermc.floodgate.api.player.FloodgatePlayer;
+import org.geysermc.floodgate.api.player.PlayerSnapshot;
+import org.junit.jupiter.api.Test;
+
+class PlayerSnapshotTest {
+    // adding players and taking snapshots doesn't use any of the injected fields
+    private final SimpleFloodgateApi api = new SimpleFloodgateApi();
+
+    @Test
+    void snapshotIsSharedUntilPlayersChange() {
+        PlayerSnapshot empty = api.getPlayerSnapshot();
+        assertSame(empty, api.getPlayerSnapshot());
+        assertEquals(0, empty.size());
+
+        FloodgatePlayer player = player("Steve", 1);
+        api.addPlayer(player);
+
+        PlayerSnapshot snapshot = api.getPlayerSnapshot();
+        assertNotSame(empty, snapshot);
+        assertTrue(snapshot.version() > empty.version());
+        assertEquals(1, snapshot.size());
+        assertSame(player, snapshot.get(0));
+        assertSame(snapshot, api.getPlayerSnapshot());
+
+        // older snapshots don't change
+        assertEquals(0, empty.size());
+    }
+
+    @Test
+    void replacedPlayerIsNotInTheSnapshot() {
+        FloodgatePlayer first = player("Steve", 1);
+        FloodgatePlayer second = player("Steve", 1);
+        api.addPlayer(first);
+        long version = api.getPlayerSnapshot().version();
+
+        assertSame(first, api.addPlayer(second));
+
+        PlayerSnapshot snapshot = api.getPlayerSnapshot();
+        assertTrue(snapshot.version() > version);
+        assertEquals(1, snapshot.size());
+        assertSame(second, snapshot.get(0));
+    }
+
+    @Test
+    void playersCanBeIteratedWithoutCopying() {
+        api.addPlayer(player("Steve", 1));
+        api.addPlayer(player("Alex", 2));
+
+        List<FloodgatePlayer> visited = new ArrayList<>();
+        api.forEachPlayer(visited::add);
+        assertEquals(2, visited.size());
+
+        List<FloodgatePlayer> iterated = new ArrayList<>();
+        for (FloodgatePlayer player : api.getPlayerSnapshot()) {
+            iterated.add(player);
+        }
+        assertEquals(2, iterated.size());
+        assertEquals(iterated, api.getPlayerSnapshot().asList());
+        assertEquals(new HashSet<>(iterated), api.getPlayers());
+    }
+
+    @Test
+    void snapshotCopiesTheGivenPlayers() {
+        FloodgatePlayer[] players = {player("Steve", 1)};
+        PlayerSnapshot snapshot = new PlayerSnapshot(1, players);
+
+        players[0] = player("Alex", 2);
+        assertEquals("Steve", snapshot.get(0).getUsername());
+    }
+
+    @Test
+    void playersCanNotBeModified() {
+        api.addPlayer(player("Steve", 1));
+
+        assertThrows(UnsupportedOperationException.class,
+                () -> api.getPlayers().add(player("Alex", 2)));
+        assertThrows(UnsupportedOperationException.class,
+                () -> api.getPlayerSnapshot().asList().clear());
+        assertThrows(UnsupportedOperationException.class,
+                () -> api.getPlayerSnapshot().asSet().clear());
+    }
+}
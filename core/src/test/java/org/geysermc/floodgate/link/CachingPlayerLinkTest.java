@@ -0,0 +1,286 @@
+/*
+ * Copyright (c) 2019-2022 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/Floodgate
+ */
+
+package org.geysermc.floodgate.link;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import org.geysermc.floodgate.api.link.LinkRequestResult;
+import org.geysermc.floodgate.api.link.PlayerLink;
+import org.geysermc.floodgate.config.FloodgateConfig.LinkCacheConfig;
+import org.geysermc.floodgate.util.LinkedPlayer;
+import org.geysermc.floodgate.util.Utils;
+import org.junit.jupiter.api.Test;
+
+class CachingPlayerLinkTest {
+    private static final UUID BEDROCK_ID = Utils.getJavaUuid(1);
+    private static final UUID OTHER_BEDROCK_ID = Utils.getJavaUuid(2);
+    private static final UUID JAVA_ID = UUID.fromString("069a79f4-44e9-4726-a5be-fca90e38aaf5");
+    private static final LinkedPlayer LINKED = LinkedPlayer.of("Steve", JAVA_ID, BEDROCK_ID);
+
+    private final FakePlayerLink delegate = new FakePlayerLink();
+    private final CachingPlayerLink link = new CachingPlayerLink(delegate, new LinkCacheConfig());
+
+    @Test
+    void secondLookupIsCached() {
+        delegate.links.put(BEDROCK_ID, LINKED);
+
+        assertLinked(link.getLinkedPlayer(BEDROCK_ID).join());
+        assertLinked(link.getLinkedPlayer(BEDROCK_ID).join());
+
+        assertEquals(1, delegate.lookups.size());
+        assertEquals(1, link.missCount());
+        assertEquals(1, link.hitCount());
+    }
+
+    @Test
+    void everyCallerGetsItsOwnCopy() {
+        delegate.links.put(BEDROCK_ID, LINKED);
+
+        LinkedPlayer first = link.getLinkedPlayer(BEDROCK_ID).join();
+        LinkedPlayer second = link.getLinkedPlayer(BEDROCK_ID).join();
+        LinkedPlayer third = link.getLinkedPlayers(Collections.singleton(BEDROCK_ID)).join()
+                .get(BEDROCK_ID);
+
+        assertNotSame(first, second);
+        assertNotSame(second, third);
+        assertNotSame(first, third);
+        assertLinked(third);
+    }
+
+    @Test
+    void notLinkedIsCached() {
+        assertNull(link.getLinkedPlayer(BEDROCK_ID).join());
+        assertNull(link.getLinkedPlayer(BEDROCK_ID).join());
+        assertFalse(link.isLinkedPlayer(BEDROCK_ID).join());
+
+        assertEquals(1, delegate.lookups.size());
+    }
+
+    @Test
+    void runningLookupIsShared() {
+        CompletableFuture<LinkedPlayer> lookup = new CompletableFuture<>();
+        delegate.pending = lookup;
+
+        CompletableFuture<LinkedPlayer> first = link.getLinkedPlayer(BEDROCK_ID);
+        CompletableFuture<LinkedPlayer> second = link.getLinkedPlayer(BEDROCK_ID);
+        assertFalse(first.isDone());
+        assertFalse(second.isDone());
+
+        lookup.complete(LINKED);
+
+        assertLinked(first.join());
+        assertLinked(second.join());
+        assertNotSame(first.join(), second.join());
+        assertEquals(1, delegate.lookups.size());
+        assertEquals(1, link.missCount());
+        // joining a running lookup is neither a hit nor a miss
+        assertEquals(0, link.hitCount());
+        assertEquals(1, link.coalescedCount());
+    }
+
+    @Test
+    void failedLookupIsNotCached() {
+        CompletableFuture<LinkedPlayer> failed = new CompletableFuture<>();
+        failed.completeExceptionally(new IllegalStateException("database is down"));
+        delegate.pending = failed;
+
+        assertTrue(link.getLinkedPlayer(BEDROCK_ID).isCompletedExceptionally());
+
+        delegate.pending = null;
+        delegate.links.put(BEDROCK_ID, LINKED);
+        assertLinked(link.getLinkedPlayer(BEDROCK_ID).join());
+        assertEquals(2, delegate.lookups.size());
+    }
+
+    @Test
+    void linkingInvalidatesTheCachedLink() {
+        assertNull(link.getLinkedPlayer(BEDROCK_ID).join());
+
+        link.linkPlayer(BEDROCK_ID, JAVA_ID, "Steve").join();
+
+        assertEquals(JAVA_ID, link.getLinkedPlayer(BEDROCK_ID).join().getJavaUniqueId());
+        assertEquals(2, delegate.lookups.size());
+    }
+
+    @Test
+    void unlinkingByJavaIdInvalidatesTheCachedLink() {
+        delegate.links.put(BEDROCK_ID, LINKED);
+        assertLinked(link.getLinkedPlayer(BEDROCK_ID).join());
+
+        link.unlinkPlayer(JAVA_ID).join();
+
+        assertNull(link.getLinkedPlayer(BEDROCK_ID).join());
+        assertEquals(2, delegate.lookups.size());
+    }
+
+    @Test
+    void lookupThatStartedBeforeAnInvalidationIsNotStored() {
+        CompletableFuture<LinkedPlayer> oldLookup = new CompletableFuture<>();
+        delegate.pending = oldLookup;
+        CompletableFuture<LinkedPlayer> result = link.getLinkedPlayer(BEDROCK_ID);
+
+        delegate.pending = null;
+        link.linkPlayer(BEDROCK_ID, JAVA_ID, "Steve").join();
+        // the lookup that started before linking still says that the player isn't linked
+        oldLookup.complete(null);
+        assertNull(result.join());
+
+        assertEquals(JAVA_ID, link.getLinkedPlayer(BEDROCK_ID).join().getJavaUniqueId());
+        assertEquals(2, delegate.lookups.size());
+    }
+
+    @Test
+    void batchLookupOnlyAsksForUncachedPlayers() {
+        delegate.links.put(BEDROCK_ID, LINKED);
+        assertLinked(link.getLinkedPlayer(BEDROCK_ID).join());
+
+        Map<UUID, LinkedPlayer> players =
+                link.getLinkedPlayers(Arrays.asList(BEDROCK_ID, OTHER_BEDROCK_ID)).join();
+
+        assertEquals(1, players.size());
+        assertLinked(players.get(BEDROCK_ID));
+        assertEquals(1, delegate.batchLookups.size());
+        assertEquals(Collections.singleton(OTHER_BEDROCK_ID),
+                new HashSet<>(delegate.batchLookups.get(0)));
+
+        // the player that isn't linked is cached by the batch lookup as well
+        assertNull(link.getLinkedPlayer(OTHER_BEDROCK_ID).join());
+        assertEquals(1, delegate.lookups.size());
+    }
+
+    private static void assertLinked(LinkedPlayer player) {
+        assertEquals("Steve", player.getJavaUsername());
+        assertEquals(JAVA_ID, player.getJavaUniqueId());
+        assertEquals(BEDROCK_ID, player.getBedrockId());
+    }
+
+    private static final class FakePlayerLink implements PlayerLink {
+        private final Map<UUID, LinkedPlayer> links = new HashMap<>();
+        private final List<UUID> lookups = new ArrayList<>();
+        private final List<Collection<UUID>> batchLookups = new ArrayList<>();
+        // returned by the next lookups instead of the links when set
+        private CompletableFuture<LinkedPlayer> pending;
+
+        @Override
+        public void load() {
+        }
+
+        @Override
+        public CompletableFuture<LinkedPlayer> getLinkedPlayer(UUID bedrockId) {
+            lookups.add(bedrockId);
+            if (pending != null) {
+                return pending;
+            }
+            return CompletableFuture.completedFuture(links.get(bedrockId));
+        }
+
+        @Override
+        public CompletableFuture<Map<UUID, LinkedPlayer>> getLinkedPlayers(
+                Collection<UUID> bedrockIds) {
+            batchLookups.add(new ArrayList<>(bedrockIds));
+            Map<UUID, LinkedPlayer> players = new HashMap<>();
+            for (UUID bedrockId : bedrockIds) {
+                LinkedPlayer player = links.get(bedrockId);
+                if (player != null) {
+                    players.put(bedrockId, player);
+                }
+            }
+            return CompletableFuture.completedFuture(players);
+        }
+
+        @Override
+        public CompletableFuture<Boolean> isLinkedPlayer(UUID playerId) {
+            return CompletableFuture.completedFuture(links.containsKey(playerId));
+        }
+
+        @Override
+        public CompletableFuture<Void> linkPlayer(UUID bedrockId, UUID javaId, String username) {
+            links.put(bedrockId, LinkedPlayer.of(username, javaId, bedrockId));
+            return CompletableFuture.completedFuture(null);
+        }
+
+        @Override
+        public CompletableFuture<Void> unlinkPlayer(UUID javaId) {
+            links.values().removeIf(player -> player.getJavaUniqueId().equals(javaId));
+            return CompletableFuture.completedFuture(null);
+        }
+
+        @Override
+        public CompletableFuture<?> createLinkRequest(
+                UUID javaId,
+                String javaUsername,
+                String bedrockUsername) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        @Override
+        public CompletableFuture<LinkRequestResult> verifyLinkRequest(
+                UUID bedrockId,
+                String javaUsername,
+                String bedrockUsername,
+                String code) {
+            return CompletableFuture.completedFuture(LinkRequestResult.NO_LINK_REQUESTED);
+        }
+
+        @Override
+        public String getName() {
+            return "fake";
+        }
+
+        @Override
+        public boolean isEnabled() {
+            return true;
+        }
+
+        @Override
+        public long getVerifyLinkTimeout() {
+            return 0;
+        }
+
+        @Override
+        public boolean isAllowLinking() {
+            return true;
+        }
+
+        @Override
+        public void stop() {
+        }
+    }
+}
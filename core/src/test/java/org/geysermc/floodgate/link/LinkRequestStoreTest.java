@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2019-2022 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/Floodgate
+ */
+
+package org.geysermc.floodgate.link;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.UUID;
+import org.geysermc.floodgate.api.link.LinkRequest;
+import org.junit.jupiter.api.Test;
+
+class LinkRequestStoreTest {
+    private static LinkRequest request(String javaUsername, long requestTime) {
+        return new LinkRequestImpl(
+                javaUsername, UUID.randomUUID(), "0000", "Bedrock" + javaUsername, requestTime);
+    }
+
+    @Test
+    void oldestRequestIsRemovedWhenFull() {
+        LinkRequestStore store = new LinkRequestStore(2);
+        store.put(request("First", 1));
+        store.put(request("Second", 2));
+        store.put(request("Third", 3));
+
+        assertEquals(2, store.size());
+        assertNull(store.get("First"));
+        assertNotNull(store.get("Second"));
+        assertNotNull(store.get("Third"));
+    }
+
+    @Test
+    void newRequestOfSamePlayerIsTheNewest() {
+        LinkRequestStore store = new LinkRequestStore(2);
+        store.put(request("First", 1));
+        store.put(request("Second", 2));
+        LinkRequest again = request("First", 3);
+        store.put(again);
+        store.put(request("Third", 4));
+
+        assertNull(store.get("Second"));
+        assertSame(again, store.get("First"));
+    }
+
+    @Test
+    void onlyExpiredRequestsAreRemoved() {
+        LinkRequestStore store = new LinkRequestStore(10);
+        store.put(request("First", 1));
+        store.put(request("Second", 2));
+        store.put(request("Third", 3));
+
+        assertEquals(2, store.removeExpired(3, 10));
+        assertEquals(1, store.size());
+        assertNotNull(store.get("Third"));
+    }
+
+    @Test
+    void removeExpiredHonoursTheLimit() {
+        LinkRequestStore store = new LinkRequestStore(10);
+        for (int i = 0; i < 5; i++) {
+            store.put(request("Player" + i, i));
+        }
+
+        assertEquals(2, store.removeExpired(100, 2));
+        assertEquals(3, store.size());
+        assertNull(store.get("Player1"));
+        assertNotNull(store.get("Player2"));
+
+        assertEquals(3, store.removeExpired(100, 10));
+        assertEquals(0, store.size());
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2019-2022 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/Floodgate
+ */
+
+package org.geysermc.floodgate.player;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.InetSocketAddress;
+import org.junit.jupiter.api.Test;
+
+class HandshakeRateLimiterTest {
+    private static final InetSocketAddress FIRST = new InetSocketAddress("10.0.0.1", 50000);
+    private static final InetSocketAddress SECOND = new InetSocketAddress("10.0.0.2", 50000);
+
+    @Test
+    void disabledLimiterAllowsEverything() {
+        HandshakeRateLimiter limiter = new HandshakeRateLimiter(0, 1);
+        assertFalse(limiter.isEnabled());
+
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(limiter.tryAcquire(FIRST));
+        }
+        assertEquals(0, limiter.droppedCount());
+    }
+
+    @Test
+    void burstIsAllowedAtOnce() {
+        // a single token per second, so no token comes back while the test is running
+        HandshakeRateLimiter limiter = new HandshakeRateLimiter(1, 3);
+
+        assertTrue(limiter.tryAcquire(FIRST));
+        assertTrue(limiter.tryAcquire(FIRST));
+        assertTrue(limiter.tryAcquire(FIRST));
+        assertFalse(limiter.tryAcquire(FIRST));
+        assertFalse(limiter.tryAcquire(FIRST));
+
+        assertEquals(2, limiter.droppedCount());
+    }
+
+    @Test
+    void portIsIgnored() {
+        HandshakeRateLimiter limiter = new HandshakeRateLimiter(1, 1);
+
+        assertTrue(limiter.tryAcquire(FIRST));
+        assertFalse(limiter.tryAcquire(new InetSocketAddress("10.0.0.1", 50001)));
+    }
+
+    @Test
+    void addressesHaveTheirOwnBucket() {
+        HandshakeRateLimiter limiter = new HandshakeRateLimiter(1, 1);
+
+        assertTrue(limiter.tryAcquire(FIRST));
+        assertFalse(limiter.tryAcquire(FIRST));
+        assertTrue(limiter.tryAcquire(SECOND));
+    }
+
+    @Test
+    void tokensComeBackOverTime() throws InterruptedException {
+        // a token every 10 milliseconds
+        HandshakeRateLimiter limiter = new HandshakeRateLimiter(100, 1);
+
+        assertTrue(limiter.tryAcquire(FIRST));
+        Thread.sleep(50);
+        assertTrue(limiter.tryAcquire(FIRST));
+    }
+
+    @Test
+    void idleBucketDoesNotSaveUpMoreThanTheBurst() throws InterruptedException {
+        // a token every 100 milliseconds
+        HandshakeRateLimiter limiter = new HandshakeRateLimiter(10, 2);
+
+        Thread.sleep(500);
+        assertTrue(limiter.tryAcquire(FIRST));
+        assertTrue(limiter.tryAcquire(FIRST));
+        // the bucket was idle for 5 tokens, but it can't hold more than the burst
+        assertFalse(limiter.tryAcquire(FIRST));
+    }
+}
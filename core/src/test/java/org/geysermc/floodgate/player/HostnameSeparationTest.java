@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2019-2022 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/Floodgate
+ */
+
+package org.geysermc.floodgate.player;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.nio.charset.StandardCharsets;
+import org.geysermc.floodgate.crypto.FloodgateCipher;
+import org.junit.jupiter.api.Test;
+
+class HostnameSeparationTest {
+    private static final String HEADER = new String(FloodgateCipher.HEADER, StandardCharsets.UTF_8);
+    // only the header is validated while separating, the content doesn't have to be valid
+    private static final String FLOODGATE_DATA = HEADER + "AAAAAAAAAAAAAAAAAAAAAA==!ZGF0YQ==";
+    private static final String BUNGEE_DATA =
+            "127.0.0.1" + '\0' + "069a79f444e94726a5befca90e38aaf5";
+
+    // separateHostname doesn't use any of the handshake handler's dependencies
+    private final FloodgateHandshakeHandler handshakeHandler =
+            new FloodgateHandshakeHandler(
+                    null, null, null, null, null, null, null, null, null, null, null);
+
+    @Test
+    void hostnameWithoutFloodgateData() {
+        assertNull(handshakeHandler.separateHostname("play.example.com"));
+        assertNull(handshakeHandler.separateHostname("play.example.com\0" + BUNGEE_DATA));
+    }
+
+    @Test
+    void floodgateDataAfterHostname() {
+        HostnameSeparationResult result =
+                handshakeHandler.separateHostname("play.example.com\0" + FLOODGATE_DATA);
+
+        assertNotNull(result);
+        assertEquals(FLOODGATE_DATA, result.floodgateData());
+        assertEquals(FloodgateCipher.version(FLOODGATE_DATA), result.headerVersion());
+        assertEquals("play.example.com", result.hostnameRemainder());
+    }
+
+    @Test
+    void floodgateDataBetweenHostnameAndBungeeData() {
+        HostnameSeparationResult result = handshakeHandler.separateHostname(
+                "play.example.com\0" + FLOODGATE_DATA + '\0' + BUNGEE_DATA);
+
+        assertNotNull(result);
+        assertEquals(FLOODGATE_DATA, result.floodgateData());
+        assertEquals("play.example.com\0" + BUNGEE_DATA, result.hostnameRemainder());
+    }
+
+    @Test
+    void floodgateDataAsFirstSegment() {
+        HostnameSeparationResult result =
+                handshakeHandler.separateHostname(FLOODGATE_DATA + "\0play.example.com");
+
+        assertNotNull(result);
+        assertEquals(FLOODGATE_DATA, result.floodgateData());
+        assertEquals("play.example.com", result.hostnameRemainder());
+    }
+
+    @Test
+    void onlyFloodgateData() {
+        HostnameSeparationResult result = handshakeHandler.separateHostname(FLOODGATE_DATA);
+
+        assertNotNull(result);
+        assertEquals(FLOODGATE_DATA, result.floodgateData());
+        assertEquals("", result.hostnameRemainder());
+    }
+
+    @Test
+    void emptySegmentIsKept() {
+        HostnameSeparationResult result =
+                handshakeHandler.separateHostname("play.example.com\0\0" + FLOODGATE_DATA);
+
+        assertNotNull(result);
+        assertEquals(FLOODGATE_DATA, result.floodgateData());
+        assertEquals("play.example.com\0", result.hostnameRemainder());
+    }
+
+    @Test
+    void identifierWithoutDataIsNotFloodgateData() {
+        String identifier = new String(FloodgateCipher.IDENTIFIER, StandardCharsets.UTF_8);
+        assertNull(handshakeHandler.separateHostname("play.example.com\0" + identifier));
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2019-2022 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/Floodgate
+ */
+
+package org.geysermc.floodgate.player;
+
+import static org.geysermc.floodgate.util.TestPlayers.linkedPlayer;
+import static org.geysermc.floodgate.util.TestPlayers.player;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.geysermc.floodgate.api.player.FloodgatePlayer;
+import org.junit.jupiter.api.Test;
+
+class PendingRemoveStoreTest {
+    private static final UUID JAVA_ID = UUID.fromString("069a79f4-44e9-4726-a5be-fca90e38aaf5");
+
+    @Test
+    void playerCanBeFoundByBothIds() {
+        PendingRemoveStore store = new PendingRemoveStore(10, 1, TimeUnit.SECONDS);
+        FloodgatePlayer player = linkedPlayer("Steve", 1, JAVA_ID);
+
+        store.put(player);
+
+        assertSame(player, store.getByJavaId(player.getJavaUniqueId()));
+        assertSame(player, store.getByCorrectId(JAVA_ID));
+        assertEquals(1, store.size());
+    }
+
+    @Test
+    void removingByOneIdRemovesBoth() {
+        PendingRemoveStore store = new PendingRemoveStore(10, 1, TimeUnit.SECONDS);
+        FloodgatePlayer first = linkedPlayer("Steve", 1, JAVA_ID);
+        FloodgatePlayer second = player("Alex", 2);
+        store.put(first);
+        store.put(second);
+
+        store.removeByCorrectId(JAVA_ID);
+        assertNull(store.getByJavaId(first.getJavaUniqueId()));
+
+        store.removeByJavaId(second.getJavaUniqueId());
+        assertNull(store.getByCorrectId(second.getCorrectUniqueId()));
+
+        assertEquals(0, store.size());
+    }
+
+    @Test
+    void playerIsRemovedAfterLingerTime() throws InterruptedException {
+        PendingRemoveStore store = new PendingRemoveStore(100, 10, TimeUnit.MILLISECONDS);
+        FloodgatePlayer player = player("Steve", 1);
+        store.put(player);
+
+        Thread.sleep(150);
+
+        // expired players can't be found, even when expire hasn't been called yet
+        assertNull(store.getByJavaId(player.getJavaUniqueId()));
+        assertEquals(1, store.size());
+
+        store.expire();
+        assertEquals(0, store.size());
+    }
+
+    @Test
+    void playerIsNotRemovedEarly() throws InterruptedException {
+        PendingRemoveStore store = new PendingRemoveStore(1000, 10, TimeUnit.MILLISECONDS);
+        FloodgatePlayer player = player("Steve", 1);
+        store.put(player);
+
+        Thread.sleep(50);
+        store.expire();
+
+        assertSame(player, store.getByJavaId(player.getJavaUniqueId()));
+        assertEquals(1, store.size());
+    }
+
+    @Test
+    void playerThatLeftAgainIsNotRemovedByTheOldDeadline() throws InterruptedException {
+        PendingRemoveStore store = new PendingRemoveStore(200, 10, TimeUnit.MILLISECONDS);
+        FloodgatePlayer player = player("Steve", 1);
+
+        store.put(player);
+        Thread.sleep(120);
+        store.put(player);
+        Thread.sleep(120);
+
+        // the first deadline has passed, the second one hasn't
+        store.expire();
+        assertSame(player, store.getByJavaId(player.getJavaUniqueId()));
+        assertEquals(1, store.size());
+    }
+
+    @Test
+    void manyPlayersExpireAtOnce() throws InterruptedException {
+        PendingRemoveStore store = new PendingRemoveStore(50, 10, TimeUnit.MILLISECONDS);
+        for (int i = 0; i < 10_000; i++) {
+            store.put(player("Player" + i, i));
+        }
+        assertEquals(10_000, store.size());
+
+        Thread.sleep(100);
+        store.expire();
+
+        assertEquals(0, store.size());
+    }
+
+    @Test
+    void expireTaskStopsRunningWhenStopped() throws InterruptedException {
+        ScheduledExecutorService pool = Executors.newSingleThreadScheduledExecutor();
+        try {
+            PendingRemoveStore store = new PendingRemoveStore(50, 10, TimeUnit.MILLISECONDS);
+            store.start(pool);
+
+            store.put(player("Steve", 1));
+            Thread.sleep(150);
+            assertEquals(0, store.size());
+
+            store.stop();
+            store.put(player("Alex", 2));
+            Thread.sleep(150);
+            assertEquals(1, store.size());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
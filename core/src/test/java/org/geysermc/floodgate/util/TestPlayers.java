@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2019-2022 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/Floodgate
+ */
+
+package org.geysermc.floodgate.util;
+
+import java.lang.reflect.Proxy;
+import java.util.UUID;
+import org.geysermc.floodgate.api.player.FloodgatePlayer;
+
+/**
+ * Creates FloodgatePlayers for tests that only need the names and uuids of a player. Every other
+ * method returns null, false or 0.
+ */
+public final class TestPlayers {
+    private TestPlayers() {
+    }
+
+    public static FloodgatePlayer player(String username, long xuid) {
+        UUID javaUniqueId = Utils.getJavaUuid(xuid);
+        return player(username, javaUniqueId, javaUniqueId, "." + username);
+    }
+
+    public static FloodgatePlayer linkedPlayer(String username, long xuid, UUID correctUniqueId) {
+        return player(username, Utils.getJavaUuid(xuid), correctUniqueId, username + "_Java");
+    }
+
+    private static FloodgatePlayer player(
+            String username,
+            UUID javaUniqueId,
+            UUID correctUniqueId,
+            String correctUsername) {
+
+        String javaUsername = "." + username;
+        return (FloodgatePlayer) Proxy.newProxyInstance(
+                TestPlayers.class.getClassLoader(),
+                new Class<?>[]{FloodgatePlayer.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getUsername":
+                            return username;
+                        case "getJavaUsername":
+                            return javaUsername;
+                        case "getCorrectUsername":
+                            return correctUsername;
+                        case "getJavaUniqueId":
+                            return javaUniqueId;
+                        case "getCorrectUniqueId":
+                            return correctUniqueId;
+                        case "isLinked":
+                            return !javaUniqueId.equals(correctUniqueId);
+                        case "equals":
+                            return proxy == args[0];
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "toString":
+                            return "TestPlayer(" + username + ")";
+                        default:
+                            return defaultValue(method.getReturnType());
+                    }
+                });
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if (type == boolean.class) {
+            return false;
+        }
+        if (type == int.class) {
+            return 0;
+        }
+        if (type == long.class) {
+            return 0L;
+        }
+        return null;
+    }
+}
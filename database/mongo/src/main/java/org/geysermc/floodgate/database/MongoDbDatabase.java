@@ -36,11 +36,18 @@ import com.mongodb.client.MongoDatabase;
 import com.mongodb.client.model.Filters;
 import com.mongodb.client.model.IndexOptions;
 import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.Projections;
 import com.mongodb.client.model.UpdateOptions;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
@@ -107,6 +114,7 @@ public class MongoDbDatabase extends CommonPlayerLink {
                 linkedPlayerRequests.createIndex(Indexes.ascending("requestTime"));
             }
 
+            scheduleLinkRequestReaper();
             getLogger().info("Connected to MongoDB database.");
         } catch (Exception exception) {
             getLogger().error("Error while loading database", exception);
@@ -144,6 +152,43 @@ public class MongoDbDatabase extends CommonPlayerLink {
         }, getExecutorService());
     }
 
+    @Override
+    @NonNull
+    public CompletableFuture<Map<UUID, LinkedPlayer>> getLinkedPlayers(
+            @NonNull Collection<UUID> bedrockIds) {
+        if (bedrockIds.isEmpty()) {
+            return CompletableFuture.completedFuture(Collections.emptyMap());
+        }
+
+        List<String> encodedIds = new ArrayList<>();
+        for (UUID bedrockId : new LinkedHashSet<>(bedrockIds)) {
+            encodedIds.add(uuidToBytes(bedrockId));
+        }
+
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                Bson filter = Filters.in("bedrockId", encodedIds);
+
+                Map<UUID, LinkedPlayer> players = new HashMap<>();
+                try (MongoCursor<Document> cursor = linkedPlayer.find(filter).cursor()) {
+                    while (cursor.hasNext()) {
+                        Document document = cursor.next();
+                        UUID bedrockId = bytesToUUID(document.getString("bedrockId"));
+                        String javaUsername = document.getString("javaUsername");
+                        UUID javaUniqueId = bytesToUUID(document.getString("javaUniqueId"));
+
+                        players.put(bedrockId,
+                                LinkedPlayer.of(javaUsername, javaUniqueId, bedrockId));
+                    }
+                }
+                return players;
+            } catch (Exception exception) {
+                getLogger().error("Error while getting LinkedPlayers", exception);
+                throw new CompletionException("Error while getting LinkedPlayers", exception);
+            }
+        }, getExecutorService());
+    }
+
     @Override
     @NonNull
     public CompletableFuture<Boolean> isLinkedPlayer(@NonNull UUID playerId) {
@@ -312,14 +357,24 @@ public class MongoDbDatabase extends CommonPlayerLink {
         return null;
     }
 
-    public void cleanLinkRequests() {
-        try {
-            Document filter = new Document("requestTime",
-                    new Document("$lt", Instant.now().getEpochSecond() - getVerifyLinkTimeout()));
-            linkedPlayerRequests.deleteMany(filter);
-        } catch (Exception exception) {
-            getLogger().error("Error while cleaning up link requests", exception);
+    @Override
+    protected int removeExpiredLinkRequests(long requestedBefore, int limit) {
+        // deleteMany doesn't have a limit, so we look the ids up first
+        List<Object> ids = new ArrayList<>();
+        Bson filter = Filters.lt("requestTime", requestedBefore);
+        try (MongoCursor<Document> cursor = linkedPlayerRequests.find(filter)
+                .projection(Projections.include("_id"))
+                .limit(limit)
+                .cursor()) {
+            while (cursor.hasNext()) {
+                ids.add(cursor.next().get("_id"));
+            }
+        }
+
+        if (ids.isEmpty()) {
+            return 0;
         }
+        return (int) linkedPlayerRequests.deleteMany(Filters.in("_id", ids)).getDeletedCount();
     }
 
     private String uuidToBytes(UUID uuid) {
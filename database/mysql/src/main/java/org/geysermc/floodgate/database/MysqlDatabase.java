@@ -27,6 +27,7 @@ package org.geysermc.floodgate.database;
 
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.sql.Connection;
@@ -35,18 +36,34 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
 import org.checkerframework.checker.nullness.qual.NonNull;
 import org.geysermc.floodgate.api.link.LinkRequest;
 import org.geysermc.floodgate.api.link.LinkRequestResult;
 import org.geysermc.floodgate.database.config.MysqlConfig;
+import org.geysermc.floodgate.database.config.MysqlConfig.PoolConfig;
 import org.geysermc.floodgate.link.CommonPlayerLink;
 import org.geysermc.floodgate.link.LinkRequestImpl;
+import org.geysermc.floodgate.util.LatencyRecorder;
 import org.geysermc.floodgate.util.LinkedPlayer;
+import org.geysermc.floodgate.util.Utils;
 
 public class MysqlDatabase extends CommonPlayerLink {
+  // the max amount of players to look up in a single query
+  private static final int BATCH_SIZE = 500;
+
+  private final LatencyRecorder acquireTime = new LatencyRecorder();
   private HikariDataSource dataSource;
 
   @Override
@@ -61,12 +78,35 @@ public class MysqlDatabase extends CommonPlayerLink {
       hikariConfig.setUsername(config.getUsername());
       hikariConfig.setPassword(config.getPassword());
       hikariConfig.setPoolName("floodgate-linking-mysql");
-      hikariConfig.setMinimumIdle(5);
-      hikariConfig.setMaximumPoolSize(10);
+
+      // an empty section in the config is loaded as null
+      PoolConfig poolConfig = config.getPool() != null ? config.getPool() : new PoolConfig();
+      hikariConfig.setMinimumIdle(poolConfig.getMinimumIdle());
+      hikariConfig.setMaximumPoolSize(poolConfig.getMaximumPoolSize());
+      hikariConfig.setConnectionTimeout(poolConfig.getConnectionTimeout());
+      hikariConfig.setIdleTimeout(poolConfig.getIdleTimeout());
+      hikariConfig.setMaxLifetime(poolConfig.getMaxLifetime());
+      hikariConfig.setLeakDetectionThreshold(poolConfig.getLeakDetectionThreshold());
+
+      // without these every query is prepared again on both the driver and the server
+      hikariConfig.addDataSourceProperty("cachePrepStmts", "true");
+      hikariConfig.addDataSourceProperty("prepStmtCacheSize", "250");
+      hikariConfig.addDataSourceProperty("prepStmtCacheSqlLimit", "2048");
+      hikariConfig.addDataSourceProperty("useServerPrepStmts", "true");
+      if (config.getProperties() != null) {
+        config.getProperties().forEach((name, value) ->
+            hikariConfig.addDataSourceProperty(name, String.valueOf(value)));
+      }
 
       dataSource = new HikariDataSource(hikariConfig);
 
-      try (Connection connection = dataSource.getConnection()) {
+      // more threads than connections would only wait for a connection
+      setExecutorService(Executors.newFixedThreadPool(
+          poolConfig.getMaximumPoolSize(),
+          Utils.daemonThreadFactory("floodgate-mysql-%d")
+      ));
+
+      try (Connection connection = getConnection()) {
         try (Statement statement = connection.createStatement()) {
           statement.executeUpdate(
               "CREATE TABLE IF NOT EXISTS `LinkedPlayers` ( " +
@@ -88,12 +128,46 @@ public class MysqlDatabase extends CommonPlayerLink {
           );
         }
       }
+      scheduleLinkRequestReaper();
       getLogger().info("Connected to MySQL-like database.");
     } catch (SQLException exception) {
       getLogger().error("Error while loading database", exception);
     }
   }
 
+  private Connection getConnection() throws SQLException {
+    long start = System.nanoTime();
+    Connection connection = dataSource.getConnection();
+    acquireTime.record(System.nanoTime() - start);
+    return connection;
+  }
+
+  @Override
+  public Map<String, String> getStatistics() {
+    Map<String, String> statistics = new LinkedHashMap<>();
+    HikariPoolMXBean pool = dataSource != null ? dataSource.getHikariPoolMXBean() : null;
+    if (pool == null) {
+      return statistics;
+    }
+
+    statistics.put("active connections", String.valueOf(pool.getActiveConnections()));
+    statistics.put("idle connections", String.valueOf(pool.getIdleConnections()));
+    statistics.put("waiting for a connection", String.valueOf(pool.getThreadsAwaitingConnection()));
+
+    long[] percentiles = acquireTime.percentiles();
+    if (percentiles != null) {
+      StringBuilder builder = new StringBuilder();
+      for (int i = 0; i < percentiles.length; i++) {
+        if (i > 0) {
+          builder.append(" / ");
+        }
+        builder.append(LatencyRecorder.formatNanos(percentiles[i]));
+      }
+      statistics.put("connection acquire time (p50/p95/p99/max)", builder.toString());
+    }
+    return statistics;
+  }
+
   @Override
   public void stop() {
     super.stop();
@@ -104,7 +178,7 @@ public class MysqlDatabase extends CommonPlayerLink {
   @NonNull
   public CompletableFuture<LinkedPlayer> getLinkedPlayer(@NonNull UUID bedrockId) {
     return CompletableFuture.supplyAsync(() -> {
-      try (Connection connection = dataSource.getConnection()) {
+      try (Connection connection = getConnection()) {
         try (PreparedStatement query = connection.prepareStatement(
             "SELECT * FROM `LinkedPlayers` WHERE `bedrockId` = ?"
         )) {
@@ -125,11 +199,58 @@ public class MysqlDatabase extends CommonPlayerLink {
     }, getExecutorService());
   }
 
+  @Override
+  @NonNull
+  public CompletableFuture<Map<UUID, LinkedPlayer>> getLinkedPlayers(
+      @NonNull Collection<UUID> bedrockIds) {
+    if (bedrockIds.isEmpty()) {
+      return CompletableFuture.completedFuture(Collections.emptyMap());
+    }
+
+    List<UUID> uniqueIds = new ArrayList<>(new LinkedHashSet<>(bedrockIds));
+    return CompletableFuture.supplyAsync(() -> {
+      Map<UUID, LinkedPlayer> players = new HashMap<>();
+      try (Connection connection = getConnection()) {
+        for (int start = 0; start < uniqueIds.size(); start += BATCH_SIZE) {
+          int end = Math.min(start + BATCH_SIZE, uniqueIds.size());
+          getLinkedPlayers0(connection, uniqueIds.subList(start, end), players);
+        }
+        return players;
+      } catch (SQLException exception) {
+        getLogger().error("Error while getting LinkedPlayers", exception);
+        throw new CompletionException("Error while getting LinkedPlayers", exception);
+      }
+    }, getExecutorService());
+  }
+
+  private void getLinkedPlayers0(
+      Connection connection,
+      List<UUID> bedrockIds,
+      Map<UUID, LinkedPlayer> players
+  ) throws SQLException {
+    String placeholders = String.join(", ", Collections.nCopies(bedrockIds.size(), "?"));
+    try (PreparedStatement query = connection.prepareStatement(
+        "SELECT * FROM `LinkedPlayers` WHERE `bedrockId` IN (" + placeholders + ")"
+    )) {
+      for (int i = 0; i < bedrockIds.size(); i++) {
+        query.setBytes(i + 1, uuidToBytes(bedrockIds.get(i)));
+      }
+      try (ResultSet result = query.executeQuery()) {
+        while (result.next()) {
+          UUID bedrockId = bytesToUUID(result.getBytes("bedrockId"));
+          String javaUsername = result.getString("javaUsername");
+          UUID javaUniqueId = bytesToUUID(result.getBytes("javaUniqueId"));
+          players.put(bedrockId, LinkedPlayer.of(javaUsername, javaUniqueId, bedrockId));
+        }
+      }
+    }
+  }
+
   @Override
   @NonNull
   public CompletableFuture<Boolean> isLinkedPlayer(@NonNull UUID playerId) {
     return CompletableFuture.supplyAsync(() -> {
-      try (Connection connection = dataSource.getConnection()) {
+      try (Connection connection = getConnection()) {
         try (PreparedStatement query = connection.prepareStatement(
             "SELECT * FROM `LinkedPlayers` WHERE `bedrockId` = ? OR `javaUniqueId` = ?"
         )) {
@@ -161,7 +282,7 @@ public class MysqlDatabase extends CommonPlayerLink {
   }
 
   private void linkPlayer0(UUID bedrockId, UUID javaId, String javaUsername) {
-    try (Connection connection = dataSource.getConnection()) {
+    try (Connection connection = getConnection()) {
       try (PreparedStatement query = connection.prepareStatement(
           "INSERT INTO `LinkedPlayers` VALUES (?, ?, ?) ON DUPLICATE KEY UPDATE " +
               "`javaUniqueId`=VALUES(`javaUniqueId`), " +
@@ -182,7 +303,7 @@ public class MysqlDatabase extends CommonPlayerLink {
   @NonNull
   public CompletableFuture<Void> unlinkPlayer(@NonNull UUID javaId) {
     return CompletableFuture.runAsync(() -> {
-      try (Connection connection = dataSource.getConnection()) {
+      try (Connection connection = getConnection()) {
         try (PreparedStatement query = connection.prepareStatement(
             "DELETE FROM `LinkedPlayers` WHERE `javaUniqueId` = ? OR `bedrockId` = ?"
         )) {
@@ -220,7 +341,7 @@ public class MysqlDatabase extends CommonPlayerLink {
       String linkCode,
       String bedrockUsername
   ) {
-    try (Connection connection = dataSource.getConnection()) {
+    try (Connection connection = getConnection()) {
       try (PreparedStatement query = connection.prepareStatement(
           "INSERT INTO `LinkedPlayersRequest` VALUES (?, ?, ?, ?, ?) " +
               "ON DUPLICATE KEY UPDATE " +
@@ -243,7 +364,7 @@ public class MysqlDatabase extends CommonPlayerLink {
   }
 
   private void removeLinkRequest(String javaUsername) {
-    try (Connection connection = dataSource.getConnection()) {
+    try (Connection connection = getConnection()) {
       try (PreparedStatement query = connection.prepareStatement(
           "DELETE FROM `LinkedPlayersRequest` WHERE `javaUsername` = ?"
       )) {
@@ -287,7 +408,7 @@ public class MysqlDatabase extends CommonPlayerLink {
   }
 
   private LinkRequest getLinkRequest0(String javaUsername) {
-    try (Connection connection = dataSource.getConnection()) {
+    try (Connection connection = getConnection()) {
       try (PreparedStatement query = connection.prepareStatement(
           "SELECT * FROM `LinkedPlayersRequest` WHERE `javaUsername` = ?"
       )) {
@@ -311,16 +432,16 @@ public class MysqlDatabase extends CommonPlayerLink {
     return null;
   }
 
-  public void cleanLinkRequests() {
-    try (Connection connection = dataSource.getConnection()) {
+  @Override
+  protected int removeExpiredLinkRequests(long requestedBefore, int limit) throws SQLException {
+    try (Connection connection = getConnection()) {
       try (PreparedStatement query = connection.prepareStatement(
-          "DELETE FROM `LinkedPlayersRequest` WHERE `requestTime` < ?"
+          "DELETE FROM `LinkedPlayersRequest` WHERE `requestTime` < ? LIMIT ?"
       )) {
-        query.setLong(1, Instant.now().getEpochSecond() - getVerifyLinkTimeout());
-        query.executeUpdate();
+        query.setLong(1, requestedBefore);
+        query.setInt(2, limit);
+        return query.executeUpdate();
       }
-    } catch (SQLException exception) {
-      getLogger().error("Error while cleaning up link requests", exception);
     }
   }
 
@@ -25,6 +25,8 @@
 
 package org.geysermc.floodgate.database.config;
 
+import java.util.HashMap;
+import java.util.Map;
 import lombok.Getter;
 
 @Getter
@@ -33,4 +35,23 @@ public class MysqlConfig implements DatabaseConfig {
   private String database = "floodgate";
   private String username = "floodgate";
   private String password;
+  private PoolConfig pool = new PoolConfig();
+  /**
+   * Extra properties for the MySQL driver. These are applied after (and thus override) the
+   * prepared statement cache properties that are enabled by default. YAML turns values like
+   * {@code false} and {@code 250} into booleans and numbers, so they're converted to strings
+   * when they're applied.
+   */
+  private Map<String, Object> properties = new HashMap<>();
+
+  @Getter
+  public static class PoolConfig {
+    private int minimumIdle = 5;
+    private int maximumPoolSize = 10;
+    // all the times are in milliseconds
+    private long connectionTimeout = 30_000;
+    private long idleTimeout = 600_000;
+    private long maxLifetime = 1_800_000;
+    private long leakDetectionThreshold = 0;
+  }
 }
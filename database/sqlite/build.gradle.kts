@@ -1,8 +1,23 @@
+plugins {
+    id("me.champeau.jmh") version "0.6.8"
+}
+
 val sqliteJdbcVersion = "3.36.0.3"
 
 dependencies {
     provided(projects.core)
     implementation("org.xerial", "sqlite-jdbc", sqliteJdbcVersion)
+
+    // the benchmarks and tests load SqliteDatabase, which extends a class from core
+    jmh(projects.core)
+    testImplementation(projects.core)
+    testImplementation("org.junit.jupiter", "junit-jupiter", Versions.junitVersion)
+}
+
+tasks {
+    named<Test>("test") {
+        useJUnitPlatform()
+    }
 }
 
 description = "The Floodgate database extension for SQLite"
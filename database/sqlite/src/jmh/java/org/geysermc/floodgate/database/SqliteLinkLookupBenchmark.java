@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2019-2022 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/Floodgate
+ */
+
+package org.geysermc.floodgate.database;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.geysermc.floodgate.api.logger.FloodgateLogger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Looks links up in a database with the schema before and after the migration. The links are
+ * stored using the old schema first, a copy of that table is kept and the rest is migrated by
+ * {@link SqliteDatabase#migrate(Connection, FloodgateLogger)}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SqliteLinkLookupBenchmark {
+    @Param("100000")
+    private int linkCount;
+
+    private Path directory;
+    private Connection connection;
+    private UUID[] bedrockIds;
+    private UUID[] javaIds;
+    private int next;
+
+    private PreparedStatement getLinkedPlayer;
+    private PreparedStatement isLinkedPlayer;
+    private PreparedStatement legacyGetLinkedPlayer;
+    private PreparedStatement legacyIsLinkedPlayer;
+
+    @Setup(Level.Trial)
+    public void setup() throws SQLException, IOException {
+        directory = Files.createTempDirectory("floodgate-sqlite-benchmark");
+        connection = SqliteDatabase.openConnection(
+                "jdbc:sqlite:" + directory.resolve("linked-players.db"));
+
+        bedrockIds = new UUID[linkCount];
+        javaIds = new UUID[linkCount];
+
+        connection.setAutoCommit(false);
+        try (Statement statement = connection.createStatement()) {
+            statement.executeUpdate(
+                    "create table LinkedPlayers (bedrockId string, javaUniqueId string, " +
+                            "javaUsername string)");
+        }
+        try (PreparedStatement insert =
+                     connection.prepareStatement("insert into LinkedPlayers values(?, ?, ?)")) {
+            for (int i = 0; i < linkCount; i++) {
+                bedrockIds[i] = new UUID(0, i);
+                javaIds[i] = UUID.randomUUID();
+                insert.setString(1, bedrockIds[i].toString());
+                insert.setString(2, javaIds[i].toString());
+                insert.setString(3, "Player" + i);
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        }
+        try (Statement statement = connection.createStatement()) {
+            statement.executeUpdate(
+                    "create table LegacyLinkedPlayers as select * from LinkedPlayers");
+        }
+        connection.commit();
+        connection.setAutoCommit(true);
+
+        // all the links are valid, so the migration doesn't have anything to log
+        SqliteDatabase.migrate(connection, null);
+
+        getLinkedPlayer = connection.prepareStatement(SqliteDatabase.GET_LINKED_PLAYER);
+        isLinkedPlayer = connection.prepareStatement(SqliteDatabase.IS_LINKED_PLAYER);
+        legacyGetLinkedPlayer = connection.prepareStatement(
+                "select * from LegacyLinkedPlayers where bedrockId = ?");
+        legacyIsLinkedPlayer = connection.prepareStatement(
+                "select javaUniqueId from LegacyLinkedPlayers " +
+                        "where bedrockId = ? or javaUniqueId = ?");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException, IOException {
+        connection.close();
+        for (String name : new String[]{"", "-wal", "-shm"}) {
+            Files.deleteIfExists(directory.resolve("linked-players.db" + name));
+        }
+        Files.deleteIfExists(directory);
+    }
+
+    private int nextIndex() {
+        int index = next;
+        next = index + 1 == linkCount ? 0 : index + 1;
+        return index;
+    }
+
+    @Benchmark
+    public String getLinkedPlayer() throws SQLException {
+        getLinkedPlayer.setBytes(1, SqliteDatabase.uuidToBytes(bedrockIds[nextIndex()]));
+        try (ResultSet result = getLinkedPlayer.executeQuery()) {
+            return result.next() ? result.getString("javaUsername") : null;
+        }
+    }
+
+    @Benchmark
+    public boolean isLinkedJavaPlayer() throws SQLException {
+        byte[] uuidBytes = SqliteDatabase.uuidToBytes(javaIds[nextIndex()]);
+        isLinkedPlayer.setBytes(1, uuidBytes);
+        isLinkedPlayer.setBytes(2, uuidBytes);
+        try (ResultSet result = isLinkedPlayer.executeQuery()) {
+            return result.next();
+        }
+    }
+
+    @Benchmark
+    public String legacyGetLinkedPlayer() throws SQLException {
+        legacyGetLinkedPlayer.setString(1, bedrockIds[nextIndex()].toString());
+        try (ResultSet result = legacyGetLinkedPlayer.executeQuery()) {
+            return result.next() ? result.getString("javaUsername") : null;
+        }
+    }
+
+    @Benchmark
+    public boolean legacyIsLinkedJavaPlayer() throws SQLException {
+        String uuid = javaIds[nextIndex()].toString();
+        legacyIsLinkedPlayer.setString(1, uuid);
+        legacyIsLinkedPlayer.setString(2, uuid);
+        try (ResultSet result = legacyIsLinkedPlayer.executeQuery()) {
+            return result.next();
+        }
+    }
+}
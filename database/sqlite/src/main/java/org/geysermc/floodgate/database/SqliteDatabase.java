@@ -25,6 +25,7 @@
 
 package org.geysermc.floodgate.database;
 
+import java.nio.ByteBuffer;
 import java.nio.file.Path;
 import java.sql.Connection;
 import java.sql.DriverManager;
@@ -32,23 +33,67 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import javax.inject.Inject;
 import javax.inject.Named;
 import org.checkerframework.checker.nullness.qual.NonNull;
 import org.geysermc.floodgate.api.link.LinkRequest;
 import org.geysermc.floodgate.api.link.LinkRequestResult;
+import org.geysermc.floodgate.api.logger.FloodgateLogger;
 import org.geysermc.floodgate.link.CommonPlayerLink;
 import org.geysermc.floodgate.link.LinkRequestImpl;
+import org.geysermc.floodgate.link.LinkRequestStore;
 import org.geysermc.floodgate.util.LinkedPlayer;
+import org.geysermc.floodgate.util.Utils;
 
+/**
+ * Stores the links in a SQLite database. SQLite only allows one writer at the time, so all the
+ * writes are done by a single thread using a single connection. Reads use a few connections of
+ * their own, which (thanks to WAL mode) don't have to wait for the writer.
+ */
 public class SqliteDatabase extends CommonPlayerLink {
-    private final Map<String, LinkRequest> activeLinkRequests = new HashMap<>();
-    private Connection connection;
+    // stored in the user_version pragma of the database
+    static final int SCHEMA_VERSION = 1;
+    private static final int READ_CONNECTION_COUNT = 4;
+    // the max amount of players to look up in a single query. Older SQLite versions don't allow
+    // more than 999 parameters in a single statement
+    private static final int BATCH_SIZE = 500;
+    private static final int MAX_LINK_REQUESTS = 10_000;
+
+    // the version 0 table is renamed to this when not every link could be migrated
+    static final String BACKUP_TABLE = "LinkedPlayersV0Backup";
+
+    static final String GET_LINKED_PLAYER = "select * from LinkedPlayers where bedrockId = ?";
+    static final String IS_LINKED_PLAYER =
+            "select 1 from LinkedPlayers where bedrockId = ? or javaUniqueId = ?";
+    static final String LINK_PLAYER = "insert or replace into LinkedPlayers values(?, ?, ?)";
+    static final String UNLINK_PLAYER =
+            "delete from LinkedPlayers where javaUniqueId = ? or bedrockId = ?";
+
+    private final BlockingQueue<ReadConnection> readConnections =
+            new ArrayBlockingQueue<>(READ_CONNECTION_COUNT);
+    private final List<Connection> connections = new ArrayList<>();
+    // Link requests have always been kept in memory for SQLite, unlike MySQL and MongoDB.
+    // A SQLite database can't be shared between servers and requests expire within minutes,
+    // so losing them on a restart only means that the player has to request a new code.
+    private final LinkRequestStore linkRequests = new LinkRequestStore(MAX_LINK_REQUESTS);
+
+    private ExecutorService writer;
+    private WriteConnection writeConnection;
 
     /* These are DELIBERATELY javax imports so Guice relocations can't break it */
     @Inject
@@ -57,15 +102,31 @@ public class SqliteDatabase extends CommonPlayerLink {
 
     @Override
     public void load() {
-        Path databasePath = dataDirectory.resolve("linked-players.db");
+        scheduleLinkRequestReaper();
+
+        String url = "jdbc:sqlite:" + dataDirectory.resolve("linked-players.db");
         try {
             Class.forName("org.sqlite.JDBC");
-            connection = DriverManager.getConnection("jdbc:sqlite:" + databasePath);
-            try (Statement statement = connection.createStatement()) {
-                statement.executeUpdate(
-                        "create table if not exists LinkedPlayers (bedrockId string, javaUniqueId string, javaUsername string)"
-                );
+
+            Connection connection = openConnection(url);
+            connections.add(connection);
+            migrate(connection, getLogger());
+            writeConnection = new WriteConnection(connection);
+
+            for (int i = 0; i < READ_CONNECTION_COUNT; i++) {
+                Connection readConnection = openConnection(url);
+                connections.add(readConnection);
+                readConnections.add(new ReadConnection(readConnection));
             }
+
+            // more threads than read connections would only wait for a connection
+            setExecutorService(Executors.newFixedThreadPool(
+                    READ_CONNECTION_COUNT,
+                    Utils.daemonThreadFactory("floodgate-sqlite-reader-%d")
+            ));
+
+            writer = Executors.newSingleThreadExecutor(
+                    Utils.daemonThreadFactory("floodgate-sqlite-writer-%d"));
         } catch (ClassNotFoundException exception) {
             getLogger().error("The required class to load the SQLite database wasn't found");
         } catch (SQLException exception) {
@@ -73,58 +134,209 @@ public class SqliteDatabase extends CommonPlayerLink {
         }
     }
 
+    static Connection openConnection(String url) throws SQLException {
+        Connection connection = DriverManager.getConnection(url);
+        try (Statement statement = connection.createStatement()) {
+            // readers and the writer don't block each other in WAL mode
+            statement.execute("pragma journal_mode = WAL");
+            // WAL mode can't get corrupted with NORMAL, it only syncs less often than FULL
+            statement.execute("pragma synchronous = NORMAL");
+            statement.execute("pragma busy_timeout = 5000");
+        }
+        return connection;
+    }
+
+    /**
+     * Brings the schema of the given database to {@link #SCHEMA_VERSION}.
+     * <p>
+     * Version 0 (the version of databases made before the schema had a version) stored the uuids
+     * as strings and didn't have a primary key or any index, so every lookup had to go through
+     * all the links. Version 1 stores the uuids as bytes, uses the Bedrock uuid as primary key and
+     * has an index on the Java uuid.
+     * Links with a uuid that can't be read can't be moved over. They're logged, and the old table
+     * is kept as {@link #BACKUP_TABLE} so that they can be fixed by hand.
+     */
+    static void migrate(Connection connection, FloodgateLogger logger) throws SQLException {
+        int version;
+        try (Statement statement = connection.createStatement();
+             ResultSet result = statement.executeQuery("pragma user_version")) {
+            version = result.next() ? result.getInt(1) : 0;
+        }
+
+        if (version >= SCHEMA_VERSION) {
+            return;
+        }
+
+        connection.setAutoCommit(false);
+        try (Statement statement = connection.createStatement()) {
+            if (version < 1) {
+                migrateToVersion1(connection, statement, logger);
+            }
+            statement.execute("pragma user_version = " + SCHEMA_VERSION);
+            connection.commit();
+        } catch (SQLException exception) {
+            connection.rollback();
+            throw exception;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    private static void migrateToVersion1(
+            Connection connection,
+            Statement statement,
+            FloodgateLogger logger) throws SQLException {
+        statement.executeUpdate(
+                "create table LinkedPlayersV1 (bedrockId blob not null primary key, " +
+                        "javaUniqueId blob not null, javaUsername text not null)"
+        );
+
+        boolean hasOldTable;
+        try (PreparedStatement query = connection.prepareStatement(
+                "select 1 from sqlite_master where type = 'table' and name = 'LinkedPlayers'");
+             ResultSet result = query.executeQuery()) {
+            hasOldTable = result.next();
+        }
+
+        int skipped = 0;
+        if (hasOldTable) {
+            try (Statement select = connection.createStatement();
+                 ResultSet result = select.executeQuery(
+                         "select bedrockId, javaUniqueId, javaUsername from LinkedPlayers");
+                 PreparedStatement insert = connection.prepareStatement(
+                         "insert or replace into LinkedPlayersV1 values(?, ?, ?)")) {
+
+                while (result.next()) {
+                    UUID bedrockId;
+                    UUID javaUniqueId;
+                    try {
+                        bedrockId = UUID.fromString(result.getString(1));
+                        javaUniqueId = UUID.fromString(result.getString(2));
+                    } catch (IllegalArgumentException | NullPointerException ignored) {
+                        logger.warn(
+                                "Skipped the link of {} (bedrockId: {}, javaUniqueId: {}) while " +
+                                        "updating the database, it has an invalid uuid",
+                                result.getString(3), result.getString(1), result.getString(2));
+                        skipped++;
+                        continue;
+                    }
+
+                    // the old schema allowed duplicates, the latest link of a player wins
+                    insert.setBytes(1, uuidToBytes(bedrockId));
+                    insert.setBytes(2, uuidToBytes(javaUniqueId));
+                    insert.setString(3, result.getString(3));
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+            }
+
+            if (skipped > 0) {
+                statement.executeUpdate("alter table LinkedPlayers rename to " + BACKUP_TABLE);
+                logger.warn("{} link(s) couldn't be moved to the new database format. The old " +
+                        "links have been kept in the {} table", skipped, BACKUP_TABLE);
+            } else {
+                statement.executeUpdate("drop table LinkedPlayers");
+            }
+        }
+
+        statement.executeUpdate("alter table LinkedPlayersV1 rename to LinkedPlayers");
+        statement.executeUpdate(
+                "create index LinkedPlayers_javaUniqueId on LinkedPlayers (javaUniqueId)");
+    }
+
     @Override
     public void stop() {
         super.stop();
-        try {
-            connection.close();
-        } catch (SQLException exception) {
-            getLogger().error("Error while closing database connection", exception);
+        if (writer != null) {
+            writer.shutdown();
+            try {
+                writer.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        for (Connection connection : connections) {
+            try {
+                connection.close();
+            } catch (SQLException exception) {
+                getLogger().error("Error while closing database connection", exception);
+            }
         }
     }
 
     @Override
     @NonNull
     public CompletableFuture<LinkedPlayer> getLinkedPlayer(@NonNull UUID bedrockId) {
-        return CompletableFuture.supplyAsync(() -> {
-            try (PreparedStatement query = connection.prepareStatement(
-                    "select * from LinkedPlayers where bedrockId = ?")) {
+        return read("getting LinkedPlayer", connection -> {
+            PreparedStatement query = connection.getLinkedPlayer;
+            query.setBytes(1, uuidToBytes(bedrockId));
+            try (ResultSet result = query.executeQuery()) {
+                if (!result.next()) {
+                    return null;
+                }
+                String javaUsername = result.getString("javaUsername");
+                UUID javaUniqueId = bytesToUuid(result.getBytes("javaUniqueId"));
+                return LinkedPlayer.of(javaUsername, javaUniqueId, bedrockId);
+            }
+        });
+    }
 
-                query.setString(1, bedrockId.toString());
-                try (ResultSet result = query.executeQuery()) {
-                    if (!result.next()) {
-                        return null;
-                    }
+    @Override
+    @NonNull
+    public CompletableFuture<Map<UUID, LinkedPlayer>> getLinkedPlayers(
+            @NonNull Collection<UUID> bedrockIds) {
+        if (bedrockIds.isEmpty()) {
+            return CompletableFuture.completedFuture(Collections.emptyMap());
+        }
+
+        List<UUID> uniqueIds = new ArrayList<>(new LinkedHashSet<>(bedrockIds));
+
+        return read("getting LinkedPlayers", connection -> {
+            Map<UUID, LinkedPlayer> players = new HashMap<>();
+            for (int start = 0; start < uniqueIds.size(); start += BATCH_SIZE) {
+                int end = Math.min(start + BATCH_SIZE, uniqueIds.size());
+                getLinkedPlayers0(connection.connection, uniqueIds.subList(start, end), players);
+            }
+            return players;
+        });
+    }
+
+    private static void getLinkedPlayers0(
+            Connection connection,
+            List<UUID> bedrockIds,
+            Map<UUID, LinkedPlayer> players) throws SQLException {
+        String placeholders = String.join(", ", Collections.nCopies(bedrockIds.size(), "?"));
+        try (PreparedStatement query = connection.prepareStatement(
+                "select * from LinkedPlayers where bedrockId in (" + placeholders + ")")) {
+
+            for (int i = 0; i < bedrockIds.size(); i++) {
+                query.setBytes(i + 1, uuidToBytes(bedrockIds.get(i)));
+            }
+
+            try (ResultSet result = query.executeQuery()) {
+                while (result.next()) {
+                    UUID bedrockId = bytesToUuid(result.getBytes("bedrockId"));
                     String javaUsername = result.getString("javaUsername");
-                    UUID javaUniqueId = UUID.fromString(result.getString("javaUniqueId"));
-                    return LinkedPlayer.of(javaUsername, javaUniqueId, bedrockId);
+                    UUID javaUniqueId = bytesToUuid(result.getBytes("javaUniqueId"));
+                    players.put(bedrockId, LinkedPlayer.of(javaUsername, javaUniqueId, bedrockId));
                 }
-            } catch (SQLException exception) {
-                getLogger().error("Error while getting LinkedPlayer", exception);
-                throw new CompletionException("Error while getting LinkedPlayer", exception);
             }
-        }, getExecutorService());
+        }
     }
 
     @Override
     @NonNull
     public CompletableFuture<Boolean> isLinkedPlayer(@NonNull UUID playerId) {
-        return CompletableFuture.supplyAsync(() -> {
-            try (PreparedStatement query = connection.prepareStatement(
-                    "select javaUniqueId from LinkedPlayers where bedrockId = ? or javaUniqueId = ?")) {
-
-                query.setString(1, playerId.toString());
-                query.setString(2, playerId.toString());
-                try (ResultSet result = query.executeQuery()) {
-                    return result.next();
-                }
-            } catch (SQLException exception) {
-                getLogger().error("Error while checking if player is a LinkedPlayer", exception);
-                throw new CompletionException(
-                        "Error while checking if player is a LinkedPlayer", exception
-                );
+        return read("checking if player is a LinkedPlayer", connection -> {
+            PreparedStatement query = connection.isLinkedPlayer;
+            byte[] uuidBytes = uuidToBytes(playerId);
+            query.setBytes(1, uuidBytes);
+            query.setBytes(2, uuidBytes);
+            try (ResultSet result = query.executeQuery()) {
+                return result.next();
             }
-        }, getExecutorService());
+        });
     }
 
     @Override
@@ -133,40 +345,35 @@ public class SqliteDatabase extends CommonPlayerLink {
             @NonNull UUID bedrockId,
             @NonNull UUID javaId,
             @NonNull String username) {
-        return CompletableFuture.runAsync(
-                () -> linkPlayer0(bedrockId, javaId, username),
-                getExecutorService());
+        return write("linking player", connection -> {
+            linkPlayer0(connection, bedrockId, javaId, username);
+            return null;
+        });
     }
 
-    private void linkPlayer0(UUID bedrockId, UUID javaId, String username) {
-        try (PreparedStatement query =
-                     connection.prepareStatement("insert into LinkedPlayers values(?, ?, ?)")) {
-
-            query.setString(1, bedrockId.toString());
-            query.setString(2, javaId.toString());
-            query.setString(3, username);
-            query.executeUpdate();
-        } catch (SQLException exception) {
-            getLogger().error("Error while linking player", exception);
-            throw new CompletionException("Error while linking player", exception);
-        }
+    private void linkPlayer0(
+            WriteConnection connection,
+            UUID bedrockId,
+            UUID javaId,
+            String username) throws SQLException {
+        PreparedStatement query = connection.linkPlayer;
+        query.setBytes(1, uuidToBytes(bedrockId));
+        query.setBytes(2, uuidToBytes(javaId));
+        query.setString(3, username);
+        query.executeUpdate();
     }
 
     @Override
     @NonNull
     public CompletableFuture<Void> unlinkPlayer(@NonNull UUID javaId) {
-        return CompletableFuture.runAsync(() -> {
-            try (PreparedStatement query = connection.prepareStatement(
-                    "delete from LinkedPlayers where javaUniqueId = ? or bedrockId = ?")) {
-
-                query.setString(1, javaId.toString());
-                query.setString(2, javaId.toString());
-                query.executeUpdate();
-            } catch (SQLException exception) {
-                getLogger().error("Error while unlinking player", exception);
-                throw new CompletionException("Error while unlinking player", exception);
-            }
-        }, getExecutorService());
+        return write("unlinking player", connection -> {
+            PreparedStatement query = connection.unlinkPlayer;
+            byte[] uuidBytes = uuidToBytes(javaId);
+            query.setBytes(1, uuidBytes);
+            query.setBytes(2, uuidBytes);
+            query.executeUpdate();
+            return null;
+        });
     }
 
     @Override
@@ -175,14 +382,17 @@ public class SqliteDatabase extends CommonPlayerLink {
             @NonNull UUID javaId,
             @NonNull String javaUsername,
             @NonNull String bedrockUsername) {
-        return CompletableFuture.supplyAsync(() -> {
-            LinkRequest request =
-                    new LinkRequestImpl(javaUsername, javaId, createCode(), bedrockUsername);
+        LinkRequest request =
+                new LinkRequestImpl(javaUsername, javaId, createCode(), bedrockUsername);
 
-            activeLinkRequests.put(javaUsername, request);
+        linkRequests.put(request);
 
-            return request.getLinkCode();
-        }, getExecutorService());
+        return CompletableFuture.completedFuture(request.getLinkCode());
+    }
+
+    @Override
+    protected int removeExpiredLinkRequests(long requestedBefore, int limit) {
+        return linkRequests.removeExpired(requestedBefore, limit);
     }
 
     @Override
@@ -192,8 +402,8 @@ public class SqliteDatabase extends CommonPlayerLink {
             @NonNull String javaUsername,
             @NonNull String bedrockUsername,
             @NonNull String code) {
-        return CompletableFuture.supplyAsync(() -> {
-            LinkRequest request = activeLinkRequests.get(javaUsername);
+        return write("linking player", connection -> {
+            LinkRequest request = linkRequests.get(javaUsername);
 
             if (request == null || !isRequestedPlayer(request, bedrockId)) {
                 return LinkRequestResult.NO_LINK_REQUESTED;
@@ -204,14 +414,94 @@ public class SqliteDatabase extends CommonPlayerLink {
             }
 
             // link request can be removed. Doesn't matter if the request is expired or not
-            activeLinkRequests.remove(javaUsername);
+            linkRequests.remove(javaUsername);
 
             if (request.isExpired(getVerifyLinkTimeout())) {
                 return LinkRequestResult.REQUEST_EXPIRED;
             }
 
-            linkPlayer0(bedrockId, request.getJavaUniqueId(), javaUsername);
+            linkPlayer0(connection, bedrockId, request.getJavaUniqueId(), javaUsername);
             return LinkRequestResult.LINK_COMPLETED;
+        });
+    }
+
+    private <T> CompletableFuture<T> read(String action, SqlTask<ReadConnection, T> task) {
+        if (writer == null) {
+            return notLoaded();
+        }
+        return CompletableFuture.supplyAsync(() -> {
+            ReadConnection connection = null;
+            try {
+                connection = readConnections.take();
+                return task.run(connection);
+            } catch (SQLException exception) {
+                getLogger().error("Error while " + action, exception);
+                throw new CompletionException("Error while " + action, exception);
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                throw new CompletionException("Interrupted while " + action, exception);
+            } finally {
+                if (connection != null) {
+                    readConnections.add(connection);
+                }
+            }
         }, getExecutorService());
     }
+
+    private <T> CompletableFuture<T> write(String action, SqlTask<WriteConnection, T> task) {
+        if (writer == null) {
+            return notLoaded();
+        }
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return task.run(writeConnection);
+            } catch (SQLException exception) {
+                getLogger().error("Error while " + action, exception);
+                throw new CompletionException("Error while " + action, exception);
+            }
+        }, writer);
+    }
+
+    private <T> CompletableFuture<T> notLoaded() {
+        return Utils.failedFuture(new IllegalStateException("The database failed to load"));
+    }
+
+    static byte[] uuidToBytes(UUID uuid) {
+        return ByteBuffer.allocate(16)
+                .putLong(uuid.getMostSignificantBits())
+                .putLong(uuid.getLeastSignificantBits())
+                .array();
+    }
+
+    static UUID bytesToUuid(byte[] uuidBytes) {
+        ByteBuffer buf = ByteBuffer.wrap(uuidBytes);
+        return new UUID(buf.getLong(), buf.getLong());
+    }
+
+    @FunctionalInterface
+    private interface SqlTask<C, T> {
+        T run(C connection) throws SQLException;
+    }
+
+    private static final class ReadConnection {
+        private final Connection connection;
+        private final PreparedStatement getLinkedPlayer;
+        private final PreparedStatement isLinkedPlayer;
+
+        private ReadConnection(Connection connection) throws SQLException {
+            this.connection = connection;
+            this.getLinkedPlayer = connection.prepareStatement(GET_LINKED_PLAYER);
+            this.isLinkedPlayer = connection.prepareStatement(IS_LINKED_PLAYER);
+        }
+    }
+
+    private static final class WriteConnection {
+        private final PreparedStatement linkPlayer;
+        private final PreparedStatement unlinkPlayer;
+
+        private WriteConnection(Connection connection) throws SQLException {
+            this.linkPlayer = connection.prepareStatement(LINK_PLAYER);
+            this.unlinkPlayer = connection.prepareStatement(UNLINK_PLAYER);
+        }
+    }
 }
@@ -0,0 +1,254 @@
+/*
+ * Copyright (c) 2019-2022 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/Floodgate
+ */
+
+package org.geysermc.floodgate.database;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import org.geysermc.floodgate.api.logger.FloodgateLogger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SqliteMigrationTest {
+    private static final UUID BEDROCK_ID = UUID.fromString("00000000-0000-0000-0009-01f64f65c7c3");
+    private static final UUID JAVA_ID = UUID.fromString("d8f2e5b3-7c9f-4a4e-9c41-5a2f0a0b1c2d");
+    private static final UUID OTHER_JAVA_ID =
+            UUID.fromString("0f3c2a1b-4d5e-4f60-8a7b-9c0d1e2f3a4b");
+
+    @TempDir
+    Path dataDirectory;
+
+    private final RecordingLogger logger = new RecordingLogger();
+    private Connection connection;
+
+    @BeforeEach
+    void openConnection() throws SQLException {
+        connection = SqliteDatabase.openConnection(
+                "jdbc:sqlite:" + dataDirectory.resolve("linked-players.db"));
+    }
+
+    @AfterEach
+    void closeConnection() throws SQLException {
+        connection.close();
+    }
+
+    @Test
+    void newDatabaseGetsTheCurrentSchema() throws SQLException {
+        SqliteDatabase.migrate(connection, logger);
+
+        assertEquals(SqliteDatabase.SCHEMA_VERSION, userVersion());
+        assertTrue(hasTable("LinkedPlayers"));
+        assertTrue(hasIndex("LinkedPlayers_javaUniqueId"));
+        assertEquals(0, rowCount("LinkedPlayers"));
+        assertTrue(logger.warnings.isEmpty());
+    }
+
+    @Test
+    void version0LinksAreMoved() throws SQLException {
+        createVersion0Table();
+        insertVersion0(BEDROCK_ID.toString(), JAVA_ID.toString(), "JavaPlayer");
+
+        SqliteDatabase.migrate(connection, logger);
+
+        assertEquals(SqliteDatabase.SCHEMA_VERSION, userVersion());
+        assertTrue(hasIndex("LinkedPlayers_javaUniqueId"));
+        assertFalse(hasTable(SqliteDatabase.BACKUP_TABLE));
+        assertTrue(logger.warnings.isEmpty());
+
+        try (PreparedStatement query =
+                     connection.prepareStatement(SqliteDatabase.GET_LINKED_PLAYER)) {
+            query.setBytes(1, SqliteDatabase.uuidToBytes(BEDROCK_ID));
+            try (ResultSet result = query.executeQuery()) {
+                assertTrue(result.next());
+                assertArrayEquals(SqliteDatabase.uuidToBytes(JAVA_ID), result.getBytes(2));
+                assertEquals(JAVA_ID, SqliteDatabase.bytesToUuid(result.getBytes(2)));
+                assertEquals("JavaPlayer", result.getString(3));
+                assertFalse(result.next());
+            }
+        }
+    }
+
+    @Test
+    void latestDuplicateLinkWins() throws SQLException {
+        createVersion0Table();
+        insertVersion0(BEDROCK_ID.toString(), JAVA_ID.toString(), "OldName");
+        insertVersion0(BEDROCK_ID.toString(), OTHER_JAVA_ID.toString(), "NewName");
+
+        SqliteDatabase.migrate(connection, logger);
+
+        assertEquals(1, rowCount("LinkedPlayers"));
+        try (Statement statement = connection.createStatement();
+             ResultSet result = statement.executeQuery(
+                     "select javaUniqueId, javaUsername from LinkedPlayers")) {
+            assertTrue(result.next());
+            assertEquals(OTHER_JAVA_ID, SqliteDatabase.bytesToUuid(result.getBytes(1)));
+            assertEquals("NewName", result.getString(2));
+        }
+    }
+
+    @Test
+    void invalidLinksAreLoggedAndKept() throws SQLException {
+        createVersion0Table();
+        insertVersion0(BEDROCK_ID.toString(), JAVA_ID.toString(), "Valid");
+        insertVersion0("not-a-uuid", JAVA_ID.toString(), "BadBedrockId");
+        insertVersion0(UUID.randomUUID().toString(), null, "NoJavaId");
+
+        SqliteDatabase.migrate(connection, logger);
+
+        assertEquals(SqliteDatabase.SCHEMA_VERSION, userVersion());
+        assertEquals(1, rowCount("LinkedPlayers"));
+        // the backup is the untouched old table, including the link that could be moved
+        assertTrue(hasTable(SqliteDatabase.BACKUP_TABLE));
+        assertEquals(3, rowCount(SqliteDatabase.BACKUP_TABLE));
+
+        // one warning per skipped link and one summary
+        assertEquals(3, logger.warnings.size());
+        assertTrue(logger.warnings.get(0).contains("BadBedrockId"));
+        assertTrue(logger.warnings.get(1).contains("NoJavaId"));
+        assertTrue(logger.warnings.get(2).contains(SqliteDatabase.BACKUP_TABLE));
+    }
+
+    @Test
+    void migrateIsIdempotent() throws SQLException {
+        createVersion0Table();
+        insertVersion0(BEDROCK_ID.toString(), JAVA_ID.toString(), "JavaPlayer");
+
+        SqliteDatabase.migrate(connection, logger);
+        SqliteDatabase.migrate(connection, logger);
+
+        assertEquals(SqliteDatabase.SCHEMA_VERSION, userVersion());
+        assertEquals(1, rowCount("LinkedPlayers"));
+        assertTrue(logger.warnings.isEmpty());
+    }
+
+    private void createVersion0Table() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.executeUpdate(
+                    "create table LinkedPlayers " +
+                            "(bedrockId string, javaUniqueId string, javaUsername string)");
+        }
+    }
+
+    private void insertVersion0(String bedrockId, String javaUniqueId, String javaUsername)
+            throws SQLException {
+        try (PreparedStatement insert =
+                     connection.prepareStatement("insert into LinkedPlayers values(?, ?, ?)")) {
+            insert.setString(1, bedrockId);
+            insert.setString(2, javaUniqueId);
+            insert.setString(3, javaUsername);
+            insert.executeUpdate();
+        }
+    }
+
+    private int userVersion() throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet result = statement.executeQuery("pragma user_version")) {
+            return result.next() ? result.getInt(1) : 0;
+        }
+    }
+
+    private boolean hasTable(String name) throws SQLException {
+        return hasSchemaEntry("table", name);
+    }
+
+    private boolean hasIndex(String name) throws SQLException {
+        return hasSchemaEntry("index", name);
+    }
+
+    private boolean hasSchemaEntry(String type, String name) throws SQLException {
+        try (PreparedStatement query = connection.prepareStatement(
+                "select 1 from sqlite_master where type = ? and name = ?")) {
+            query.setString(1, type);
+            query.setString(2, name);
+            try (ResultSet result = query.executeQuery()) {
+                return result.next();
+            }
+        }
+    }
+
+    private int rowCount(String table) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet result = statement.executeQuery("select count(*) from " + table)) {
+            return result.next() ? result.getInt(1) : 0;
+        }
+    }
+
+    private static final class RecordingLogger implements FloodgateLogger {
+        private final List<String> warnings = new ArrayList<>();
+
+        @Override
+        public void error(String message, Object... args) {
+        }
+
+        @Override
+        public void error(String message, Throwable throwable, Object... args) {
+        }
+
+        @Override
+        public void warn(String message, Object... args) {
+            // good enough to check what was logged
+            StringBuilder builder = new StringBuilder(message);
+            for (Object arg : args) {
+                builder.append(' ').append(arg);
+            }
+            warnings.add(builder.toString());
+        }
+
+        @Override
+        public void info(String message, Object... args) {
+        }
+
+        @Override
+        public void translatedInfo(String message, Object... args) {
+        }
+
+        @Override
+        public void debug(String message, Object... args) {
+        }
+
+        @Override
+        public void trace(String message, Object... args) {
+        }
+
+        @Override
+        public boolean isDebug() {
+            return false;
+        }
+    }
+}
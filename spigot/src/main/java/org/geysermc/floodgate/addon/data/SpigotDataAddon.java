@@ -47,6 +47,10 @@ public final class SpigotDataAddon implements InjectorAddon {
     @Named("packetHandler")
     private String packetHandlerName;
 
+    @Inject
+    @Named("packetDecoder")
+    private String packetDecoderName;
+
     @Inject
     @Named("kickMessageAttribute")
     private AttributeKey<String> kickMessageAttribute;
@@ -65,6 +69,14 @@ public final class SpigotDataAddon implements InjectorAddon {
                 packetHandlerName, "floodgate_data_handler",
                 new SpigotDataHandler(handshakeHandler, config, kickMessageAttribute, versionSpecificMethods)
         );
+
+        // the decoder can be missing when a plugin like ProtocolSupport replaced it
+        if (channel.pipeline().get(packetDecoderName) != null) {
+            channel.pipeline().addBefore(
+                    packetDecoderName, "floodgate_data_detector",
+                    new FloodgateDataDetector("floodgate_data_handler")
+            );
+        }
     }
 
     @Override
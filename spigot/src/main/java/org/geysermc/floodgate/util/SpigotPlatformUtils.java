@@ -25,10 +25,14 @@
 
 package org.geysermc.floodgate.util;
 
+import com.google.inject.Inject;
+import java.util.UUID;
 import org.bukkit.Bukkit;
 import org.geysermc.floodgate.platform.util.PlatformUtils;
 
 public class SpigotPlatformUtils extends PlatformUtils {
+    @Inject private SpigotVersionSpecificMethods versionSpecificMethods;
+
     @Override
     public AuthType authType() {
         if (Bukkit.getOnlineMode()) {
@@ -46,4 +50,10 @@ public class SpigotPlatformUtils extends PlatformUtils {
     public String serverImplementationName() {
         return Bukkit.getServer().getName();
     }
+
+    @Override
+    public boolean runOnPlayerThread(UUID playerUuid, Runnable task) {
+        versionSpecificMethods.runOnPlayerThread(playerUuid, task);
+        return true;
+    }
 }
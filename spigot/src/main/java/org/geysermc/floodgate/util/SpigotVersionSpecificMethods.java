@@ -177,6 +177,23 @@ public final class SpigotVersionSpecificMethods {
         plugin.getServer().getScheduler().runTaskLater(plugin, runnable, delay);
     }
 
+    public void runOnPlayerThread(UUID playerUuid, Runnable runnable) {
+        if (ClassNames.IS_FOLIA) {
+            Player player = plugin.getServer().getPlayer(playerUuid);
+            // the player can already be gone, but the task should still run
+            if (player == null || !player.getScheduler().execute(plugin, runnable, runnable, 0)) {
+                plugin.getServer().getGlobalRegionScheduler().run(plugin, $ -> runnable.run());
+            }
+            return;
+        }
+
+        if (plugin.getServer().isPrimaryThread()) {
+            runnable.run();
+            return;
+        }
+        plugin.getServer().getScheduler().runTask(plugin, runnable);
+    }
+
     @SuppressWarnings("deprecation")
     private void hideAndShowPlayer0(Player source, Player target) {
         if (NEW_VISIBILITY) {
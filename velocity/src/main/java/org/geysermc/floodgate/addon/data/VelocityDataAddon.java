@@ -78,6 +78,10 @@ public final class VelocityDataAddon implements InjectorAddon {
 
         PacketBlocker blocker = new PacketBlocker();
         channel.pipeline().addBefore(packetDecoder, "floodgate_packet_blocker", blocker);
+        channel.pipeline().addBefore(
+                "floodgate_packet_blocker", "floodgate_data_detector",
+                new FloodgateDataDetector("floodgate_packet_blocker", "floodgate_data_handler")
+        );
 
         // The handler is already added so we should add our handler before it
         channel.pipeline().addBefore(